@@ -1,13 +1,21 @@
 package org.lawcubator.assignment.userRegistrationBackend;
 
+import org.lawcubator.assignment.userRegistrationBackend.boot.TrainingRun;
+import org.lawcubator.assignment.userRegistrationBackend.boot.UserImport;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @SpringBootApplication
 public class UserRegistrationBackendApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(UserRegistrationBackendApplication.class, args);
+		ConfigurableApplicationContext context = SpringApplication.run(UserRegistrationBackendApplication.class, args);
+		
+		// Imports and training runs are over once the application has started, it exits with their outcome
+		if (context.getBean(UserImport.class).hasImported() || context.getBean(TrainingRun.class).isOver()) {
+			System.exit(SpringApplication.exit(context));
+		}
 	}
 
 }
@@ -1,5 +1,7 @@
 package org.lawcubator.assignment.userRegistrationBackend.boot;
 
+import java.util.List;
+
 import org.lawcubator.assignment.userRegistrationBackend.model.Project;
 import org.lawcubator.assignment.userRegistrationBackend.model.User;
 import org.lawcubator.assignment.userRegistrationBackend.model.Visibility;
@@ -7,12 +9,16 @@ import org.lawcubator.assignment.userRegistrationBackend.service.ProjectService;
 import org.lawcubator.assignment.userRegistrationBackend.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 /**
  * Bootstrap some sample User and Projects in the database for development and testing purposes
+ * <p>
+ * Skipped in the {@code prod} profile, whose database is kept across restarts
  */
 @Component
+@Profile("!prod")
 public final class Boot implements CommandLineRunner {
 
 	private final UserService userService;
@@ -42,14 +48,10 @@ public final class Boot implements CommandLineRunner {
 	}
 	
 	private void saveUser(User ...users) {
-		for (User user : users) {
-			userService.saveUser(user);
-		}
+		userService.saveUsers(List.of(users));
 	}
 	
 	private void saveProject(Project ...projects) {
-		for (Project project : projects) {
-			projectService.saveProject(project);
-		}
+		projectService.saveProjects(List.of(projects));
 	}
 }
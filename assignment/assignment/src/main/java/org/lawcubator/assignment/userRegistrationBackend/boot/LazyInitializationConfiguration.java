@@ -0,0 +1,25 @@
+package org.lawcubator.assignment.userRegistrationBackend.boot;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+
+/**
+ * Configuration of the beans initialized at startup when {@code spring.main.lazy-initialization} is enabled, as it
+ * is in the {@code prod} profile
+ * <p>
+ * Controllers and their advices, along with everything they depend on, are still initialized at startup, so that
+ * the first requests are not slowed down by them. Every other bean is only initialized once it is first needed.
+ */
+@Configuration
+public class LazyInitializationConfiguration {
+
+	@Bean
+	public static LazyInitializationExcludeFilter requestHandlingExcludeFilter() {
+		return (beanName, beanDefinition, beanType) -> AnnotatedElementUtils.hasAnnotation(beanType, Controller.class)
+							      || AnnotatedElementUtils.hasAnnotation(beanType, ControllerAdvice.class);
+	}
+}
@@ -0,0 +1,40 @@
+package org.lawcubator.assignment.userRegistrationBackend.boot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tells the application to shut down as soon as it has started when it is started with {@code --training-run}
+ * <p>
+ * Used to record the classes loaded during startup into an AppCDS archive with 
+ * {@code -XX:ArchiveClassesAtExit=<archive>}, so that later startups given {@code -XX:SharedArchiveFile=<archive>}
+ * map them from the archive instead of loading and verifying them again.
+ */
+@Component
+public final class TrainingRun implements ApplicationRunner {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TrainingRun.class);
+	private static final String TRAINING_RUN_OPTION = "training-run";
+	
+	private volatile boolean over;
+	
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		if (!args.containsOption(TRAINING_RUN_OPTION)) {
+			return;
+		}
+		
+		LOGGER.info("Training run is over, shutting down");
+		over = true;
+	}
+	
+	/**
+	 * @return true if the application has been started for a training run, and has to be shut down
+	 */
+	public boolean isOver() {
+		return over;
+	}
+}
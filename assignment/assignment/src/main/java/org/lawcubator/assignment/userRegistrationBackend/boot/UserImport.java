@@ -0,0 +1,73 @@
+package org.lawcubator.assignment.userRegistrationBackend.boot;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.lawcubator.assignment.userRegistrationBackend.model.UserImportReport;
+import org.lawcubator.assignment.userRegistrationBackend.service.UserImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Component;
+
+/**
+ * Imports Users in bulk when the application is started with {@code --import-users=<file>}, after which the
+ * application has to be shut down with the exit code of the import
+ * <p>
+ * Rejected rows are written to {@code --rejected-rows=<file>}, or else to {@code <file>.rejected}. Users can only
+ * be imported in the {@code prod} profile, since the default profile recreates the database and seeds it with
+ * sample data on every start. The exit code is {@value #SUCCESS_EXIT_CODE} once every row has been imported, and
+ * {@value #REJECTED_ROWS_EXIT_CODE} if any row has been rejected.
+ */
+@Component
+public final class UserImport implements ApplicationRunner, ExitCodeGenerator {
+
+	private static final String USERS_FILE_OPTION = "import-users";
+	private static final String REJECTED_ROWS_FILE_OPTION = "rejected-rows";
+	private static final int SUCCESS_EXIT_CODE = 0;
+	private static final int REJECTED_ROWS_EXIT_CODE = 2;
+	
+	private final UserImportService userImportService;
+	private final Environment environment;
+	private volatile UserImportReport report;
+	
+	@Autowired
+	public UserImport(UserImportService userImportService, Environment environment) {
+		this.userImportService = userImportService;
+		this.environment = environment;
+	}
+	
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		if (!args.containsOption(USERS_FILE_OPTION)) {
+			return;
+		}
+		
+		if (!environment.acceptsProfiles(Profiles.of("prod"))) {
+			throw new IllegalStateException("Users can only be imported with --spring.profiles.active=prod, "
+							+ "the default profile recreates the database on every start");
+		}
+		
+		Path usersFile = Paths.get(args.getOptionValues(USERS_FILE_OPTION).get(0));
+		Path rejectedRowsFile = args.containsOption(REJECTED_ROWS_FILE_OPTION) 
+					? Paths.get(args.getOptionValues(REJECTED_ROWS_FILE_OPTION).get(0))
+					: usersFile.resolveSibling(usersFile.getFileName() + ".rejected");
+		
+		report = userImportService.importUsers(usersFile, rejectedRowsFile);
+	}
+	
+	/**
+	 * @return true if Users have been imported, and the application has to be shut down
+	 */
+	public boolean hasImported() {
+		return report != null;
+	}
+	
+	@Override
+	public int getExitCode() {
+		return (report == null || report.getRejectedRows() == 0) ? SUCCESS_EXIT_CODE : REJECTED_ROWS_EXIT_CODE;
+	}
+}
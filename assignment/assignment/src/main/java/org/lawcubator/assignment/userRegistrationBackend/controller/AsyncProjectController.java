@@ -0,0 +1,178 @@
+package org.lawcubator.assignment.userRegistrationBackend.controller;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.lawcubator.assignment.userRegistrationBackend.model.Project;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectBatchResult;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectPage;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.lawcubator.assignment.userRegistrationBackend.search.ProjectSearchService;
+import org.lawcubator.assignment.userRegistrationBackend.service.ProjectRequestService;
+import org.lawcubator.assignment.userRegistrationBackend.service.ProjectService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller serving the Project specific requests asynchronously
+ * <p>
+ * Every endpoint behaves exactly like the endpoint of {@link ProjectController} with the same path, and is handled
+ * by the same services, but the servlet thread is released as soon as the request has been handed over to the 
+ * {@link ProjectRequestExecutor}. The work handed over only depends on the parameters of the request, entity tags
+ * are computed and compared on the executor too. Slow queries therefore hold one of its threads instead of a servlet thread, and
+ * requests that find the executor full are answered straight away with {@code 503 Service Unavailable} and a 
+ * {@code Retry-After} header instead of queueing up.
+ */
+@RestController
+@RequestMapping(path = "projectApi/v1/async/")
+public class AsyncProjectController {
+
+	private final ProjectService projectService;
+	private final ProjectRequestService projectRequestService;
+	private final ProjectSearchService projectSearchService;
+	private final ProjectRequestExecutor projectRequestExecutor;
+	
+	@Autowired
+	public AsyncProjectController(ProjectService projectService, ProjectRequestService projectRequestService,
+				      ProjectSearchService projectSearchService, ProjectRequestExecutor projectRequestExecutor) {
+		this.projectService = projectService;
+		this.projectRequestService = projectRequestService;
+		this.projectSearchService = projectSearchService;
+		this.projectRequestExecutor = projectRequestExecutor;
+	}
+	
+	/**
+	 * @see ProjectController#saveProject(Project, String)
+	 * @throws RejectedExecutionException if the executor was full
+	 */
+	@PostMapping("project/new")
+	private CompletableFuture<ResponseEntity<Object>> saveProject(@RequestBody Project projectToBeSaved, 
+								      @RequestParam("user") String currentUsername) {
+		return projectRequestExecutor.submit(() -> projectRequestService.saveProject(projectToBeSaved, currentUsername));
+	}
+	
+	/**
+	 * @see ProjectController#saveProjects(List, String)
+	 * @throws RejectedExecutionException if the executor was full
+	 */
+	@PostMapping("project/batch")
+	private CompletableFuture<List<ProjectBatchResult>> saveProjects(@RequestBody List<Project> projectsToBeSaved, 
+									 @RequestParam("user") String currentUsername) {
+		return projectRequestExecutor.submit(() -> projectRequestService.saveProjects(projectsToBeSaved, currentUsername));
+	}
+	
+	/**
+	 * @see ProjectController#findAllPublicProjectsOfOtherUsers(String, String)
+	 * @throws RejectedExecutionException if the executor was full
+	 */
+	@GetMapping("other-projects/all")
+	private CompletableFuture<ResponseEntity<List<ProjectSummary>>> findAllPublicProjectsOfOtherUsers(@RequestParam("currentUser") String currentUsername,
+													  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		return projectRequestExecutor.submit(() -> projectRequestService.findAllPublicProjectsOfOtherUsers(currentUsername, ifNoneMatch));
+	}
+	
+	/**
+	 * @see ProjectController#findPublicProjectsOfOtherUsers(String, String, int)
+	 * @throws RejectedExecutionException if the executor was full
+	 */
+	@GetMapping("other-projects/page")
+	private CompletableFuture<ProjectPage> findPublicProjectsOfOtherUsers(@RequestParam("currentUser") String currentUsername,
+									      @RequestParam(value = "after", required = false) String after,
+									      @RequestParam(value = "size", defaultValue = "50") int size) {
+		return projectRequestExecutor.submit(() -> projectService.findPublicProjectsOfOtherUsers(currentUsername, after, size));
+	}
+	
+	/**
+	 * @see ProjectController#findAllProjectsOfRequestedUser(String, String, String)
+	 * @throws RejectedExecutionException if the executor was full
+	 */
+	@GetMapping("projects/all")
+	private CompletableFuture<ResponseEntity<List<ProjectSummary>>> findAllProjectsOfRequestedUser(@RequestParam("currentUser") String currentUsername, 
+												       @RequestParam("requestedUser") String requestedUsername,
+												       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		return projectRequestExecutor.submit(() -> projectRequestService.findAllProjectsOfRequestedUser(currentUsername, requestedUsername, ifNoneMatch));
+	}
+	
+	/**
+	 * @see ProjectController#searchProjects(String, String, int, Authentication)
+	 * @throws RejectedExecutionException if the executor was full
+	 */
+	@GetMapping("projects/search")
+	private CompletableFuture<List<ProjectSummary>> searchProjects(@RequestParam("currentUser") String currentUsername,
+								       @RequestParam("query") String query,
+								       @RequestParam(value = "limit", defaultValue = "20") int limit,
+								       Authentication authentication) {
+		ProjectController.checkAuthenticatedUser(currentUsername, authentication);
+		return projectRequestExecutor.submit(() -> projectSearchService.searchProjects(query, currentUsername, limit));
+	}
+	
+	/**
+	 * @see ProjectController#suggestProjects(String, String, int, Authentication)
+	 * @throws RejectedExecutionException if the executor was full
+	 */
+	@GetMapping("projects/suggest")
+	private CompletableFuture<List<ProjectSummary>> suggestProjects(@RequestParam("currentUser") String currentUsername,
+									@RequestParam("prefix") String prefix,
+									@RequestParam(value = "limit", defaultValue = "10") int limit,
+									Authentication authentication) {
+		ProjectController.checkAuthenticatedUser(currentUsername, authentication);
+		return projectRequestExecutor.submit(() -> projectSearchService.suggestProjects(prefix, currentUsername, limit));
+	}
+	
+	/**
+	 * @see ProjectController#findProjectById(String, Integer, String)
+	 * @throws RejectedExecutionException if the executor was full
+	 */
+	@GetMapping("project")
+	private CompletableFuture<ResponseEntity<ProjectSummary>> findProjectById(@RequestParam("currentUser") String currentUsername, 
+										  @RequestParam("projectId") Integer id,
+										  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		return projectRequestExecutor.submit(() -> projectRequestService.findProjectById(id, currentUsername, ifNoneMatch));
+	}
+	
+	/**
+	 * @see ProjectController#modifyProject(Project, String, boolean)
+	 * @throws RejectedExecutionException if the executor was full
+	 */
+	@PutMapping("project/modify")
+	private CompletableFuture<ProjectSummary> modifyProject(@RequestBody Project newProjectDetails, 
+								@RequestParam("user") String currentUsername,
+								@RequestParam(value = "writeBehind", defaultValue = "false") boolean writeBehind) {
+		return projectRequestExecutor.submit(() -> projectRequestService.modifyProject(newProjectDetails, currentUsername, writeBehind));
+	}
+	
+	/**
+	 * @see ProjectController#removeProject(Integer, String)
+	 * @throws RejectedExecutionException if the executor was full
+	 */
+	@DeleteMapping("project/remove")
+	private CompletableFuture<Void> removeProject(@RequestParam("projectId") Integer id, 
+						      @RequestParam("user") String currentUsername) {
+		return projectRequestExecutor.submit(() -> {
+			projectService.removeProject(id, currentUsername);
+			return null;
+		});
+	}
+	
+	/**
+	 * @see ProjectController#removeProjects(List, String)
+	 * @throws RejectedExecutionException if the executor was full
+	 */
+	@PostMapping("projects/remove")
+	private CompletableFuture<Integer> removeProjects(@RequestBody List<Integer> ids, 
+							  @RequestParam("user") String currentUsername) {
+		return projectRequestExecutor.submit(() -> projectService.removeProjects(ids, currentUsername));
+	}
+}
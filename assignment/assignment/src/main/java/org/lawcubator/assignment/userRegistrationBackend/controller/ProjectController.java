@@ -1,22 +1,40 @@
 package org.lawcubator.assignment.userRegistrationBackend.controller;
 
-import java.util.Set;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
+import javax.servlet.http.HttpServletResponse;
+
+import org.lawcubator.assignment.userRegistrationBackend.feed.ProjectEventFeed;
 import org.lawcubator.assignment.userRegistrationBackend.model.Project;
-import org.lawcubator.assignment.userRegistrationBackend.model.User;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectBatchResult;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectPage;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.lawcubator.assignment.userRegistrationBackend.search.ProjectSearchService;
+import org.lawcubator.assignment.userRegistrationBackend.service.ProjectExportService;
+import org.lawcubator.assignment.userRegistrationBackend.service.ProjectExportService.ProjectExport;
+import org.lawcubator.assignment.userRegistrationBackend.service.ProjectRequestService;
 import org.lawcubator.assignment.userRegistrationBackend.service.ProjectService;
 import org.lawcubator.assignment.userRegistrationBackend.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
  * Controller responsible for intercepting the Project specific requests
@@ -26,151 +44,299 @@ import org.springframework.web.bind.annotation.RestController;
 public class ProjectController {
 
 	private final ProjectService projectService;
+	private final ProjectRequestService projectRequestService;
 	private final UserService userService;
+	private final ProjectExportService projectExportService;
+	private final ProjectSearchService projectSearchService;
+	private final ProjectEventFeed projectEventFeed;
 
 	@Autowired
-	public ProjectController(ProjectService projectService, UserService userService) {
+	public ProjectController(ProjectService projectService, ProjectRequestService projectRequestService, UserService userService,
+				 ProjectExportService projectExportService, ProjectSearchService projectSearchService, ProjectEventFeed projectEventFeed) {
 		this.projectService = projectService;
+		this.projectRequestService = projectRequestService;
 		this.userService = userService;
+		this.projectExportService = projectExportService;
+		this.projectSearchService = projectSearchService;
+		this.projectEventFeed = projectEventFeed;
 	}
 	
 	/**
 	 * Adds a new project to the database owned by a User already present in the database
+	 * <p>
+	 * Names that have already been taken are rejected with {@code 400 Bad Request} before any transaction is
+	 * started, most of the time without querying the database at all.
 	 * 
 	 * @param projectToBeSaved New Project to be saved in the database
-	 * @return Project saved to the database
-	 * @throws DataIntegrityViolationException if current Project name had already been taken by an existing 
-	 * Project in the database
-	 * @throws IllegalArgumentException if the proposed Project name is null or empty or User of Project to be 
+	 * @param currentUsername User who is saving the Project
+	 * @return Project saved to the database, or the reason it was rejected
+	 * @throws DataIntegrityViolationException if current Project name had been taken by an existing Project
+	 * in the database while the Project was being saved
+	 * @throws IllegalArgumentException if the proposed Project name is null or empty, or User of Project to be 
 	 * saved is not same as the current User
 	 */
 	@PostMapping("project/new")
-	private Project saveProject(@RequestBody Project projectToBeSaved, 
-				    @RequestParam("user") String currentUsername) {
-		if (projectToBeSaved.getUser() == null) {
-			throw new IllegalArgumentException("User credentials are invalid");
-		}
-		
-		User currentUser = userService.findUserByUsername(currentUsername);
-		
-		if (currentUser.getId() != projectToBeSaved.getUser().getId() ||
-			!currentUser.getUsername().equals(projectToBeSaved.getUser().getUsername()) ||
-			!currentUser.getPassword().equals(projectToBeSaved.getUser().getPassword())) {
-			throw new IllegalArgumentException("User credentials are invalid");
-		}
-		
-		String name = projectToBeSaved.getName();
-		
-		if (name == null || name.trim().isEmpty()) {
-			throw new IllegalArgumentException("Project name cannot be null or empty");
-		}
-		
-		try {
-			Project savedProject = projectService.saveProject(projectToBeSaved);
-			return savedProject; 
-		} catch (DataIntegrityViolationException ex) {
-			throw new DataIntegrityViolationException("Project name has already been taken. Try a new one.");
-		}
+	private ResponseEntity<Object> saveProject(@RequestBody Project projectToBeSaved, 
+						   @RequestParam("user") String currentUsername) {
+		ResponseEntity<Object> savedProject = projectRequestService.saveProject(projectToBeSaved, currentUsername);
+		return savedProject;
+	}
+	
+	/**
+	 * Adds a batch of new Projects to the database owned by a User already present in the database
+	 * <p>
+	 * Every Project is validated on its own. Projects that cannot be saved, for instance because their name 
+	 * has already been taken, are reported without preventing the rest of the batch from being saved.
+	 * 
+	 * @param projectsToBeSaved New Projects to be saved in the database
+	 * @param currentUsername User who is saving the Projects
+	 * @return Outcome of every Project of the batch, in the same order as the Projects were sent
+	 * @throws IllegalArgumentException if the current User is not present in the database, or if the batch was
+	 * empty or too large
+	 */
+	@PostMapping("project/batch")
+	private List<ProjectBatchResult> saveProjects(@RequestBody List<Project> projectsToBeSaved, 
+						      @RequestParam("user") String currentUsername) {
+		List<ProjectBatchResult> results = projectRequestService.saveProjects(projectsToBeSaved, currentUsername);
+		return results;
 	}
 	
 	/**
 	 * Finds all the {@code Public} Projects that are owned by all the Users
 	 * existing in the application, except for the User requesting the Projects
+	 * <p>
+	 * The number of Projects returned is capped, {@code other-projects/page} has to be used to go through all of them.
+	 * The response carries an entity tag, and {@code 304 Not Modified} is returned without loading the Projects
+	 * if none of them has changed since the tag sent in {@code If-None-Match}.
 	 * 
 	 * @param currentUsername User who is requesting the Projects
-	 * @return Set of all the Projects owned by all the Users except the requesting User
+	 * @param ifNoneMatch Entity tags the client already holds
+	 * @return List of all the Projects owned by all the Users except the requesting User, ordered by Id
 	 */
 	@GetMapping("other-projects/all")
-	private Set<Project> findAllPublicProjectsOfOtherUsers(@RequestParam("currentUser") String currentUsername) {
-		Set<Project> projects = projectService.findAllPublicProjectsOfOtherUsers(currentUsername);
+	private ResponseEntity<List<ProjectSummary>> findAllPublicProjectsOfOtherUsers(@RequestParam("currentUser") String currentUsername,
+										       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		ResponseEntity<List<ProjectSummary>> projects = projectRequestService.findAllPublicProjectsOfOtherUsers(currentUsername, ifNoneMatch);
 		return projects;
 	}
 	
+	/**
+	 * Finds a single page of the {@code Public} Projects that are owned by all the Users
+	 * existing in the application, except for the User requesting the Projects
+	 * 
+	 * @param currentUsername User who is requesting the Projects
+	 * @param after Cursor returned along with the previous page, absent for the first page
+	 * @param size Maximum number of Projects in the page
+	 * @return Page of the Projects ordered by Id, along with the cursor of the next page
+	 * @throws IllegalArgumentException if the page size was not positive or the cursor was invalid
+	 */
+	@GetMapping("other-projects/page")
+	private ProjectPage findPublicProjectsOfOtherUsers(@RequestParam("currentUser") String currentUsername,
+							   @RequestParam(value = "after", required = false) String after,
+							   @RequestParam(value = "size", defaultValue = "50") int size) {
+		ProjectPage page = projectService.findPublicProjectsOfOtherUsers(currentUsername, after, size);
+		return page;
+	}
+	
+	/**
+	 * Exports all the {@code Public} Projects that are owned by all the Users
+	 * existing in the application, except for the User requesting the Projects
+	 * <p>
+	 * Projects are streamed as newline delimited JSON, one Project per line, ordered by Id.
+	 * 
+	 * @param currentUsername User who is requesting the Projects
+	 * @param response Response the Projects are written to
+	 * @throws IOException if the Projects could not be written to the response
+	 */
+	@GetMapping("other-projects/export")
+	private void exportPublicProjectsOfOtherUsers(@RequestParam("currentUser") String currentUsername, 
+						      HttpServletResponse response) throws IOException {
+		ProjectExport export = projectExportService.exportPublicProjectsOfOtherUsers(currentUsername);
+		response.setContentType(ProjectExportService.NDJSON_CONTENT_TYPE);
+		export.writeTo(response.getOutputStream());
+	}
+	
 	/**
 	 * Finds all the Projects currently owned by a User
 	 * <p>
 	 * If User who has requested the Projects and user whose Projects are being requested are same
 	 * then all the projects of the User present in the database will be returned. However,
 	 * if both are different, then only {@code Public} Projects of the requested User will be returned.
+	 * The response carries an entity tag, and {@code 304 Not Modified} is returned without loading the Projects
+	 * if none of them has changed since the tag sent in {@code If-None-Match}.
 	 * 
 	 * @param currentUsername User who is requesting the Projects
 	 * @param requestedUsername User whose Projects are being requested
-	 * @return Set of all the Projects owned by the requested User. If requested User is same the requesting User,
-	 * all the Projects will be returned. Else, only {@code Public} Projects will be returned
+	 * @param ifNoneMatch Entity tags the client already holds
+	 * @return List of all the Projects owned by the requested User ordered by Id. If requested User is same the
+	 * requesting User, all the Projects will be returned. Else, only {@code Public} Projects will be returned
 	 * @throws IllegalArgumentException - if the requested User was not present in the database
 	 */
 	@GetMapping("projects/all")
-	private Set<Project> findAllProjectsOfRequestedUser(@RequestParam("currentUser") String currentUsername, 
-							    @RequestParam("requestedUser") String requestedUsername) {
-		Set<Project> projects = projectService.findAllProjectsOfRequestedUser(currentUsername, requestedUsername);
+	private ResponseEntity<List<ProjectSummary>> findAllProjectsOfRequestedUser(@RequestParam("currentUser") String currentUsername, 
+										    @RequestParam("requestedUser") String requestedUsername,
+										    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		ResponseEntity<List<ProjectSummary>> projects = projectRequestService.findAllProjectsOfRequestedUser(currentUsername, requestedUsername,
+														     ifNoneMatch);
+		return projects;
+	}
+	
+	/**
+	 * Exports all the Projects currently owned by a User
+	 * <p>
+	 * Projects are streamed as newline delimited JSON, one Project per line, ordered by Id.
+	 * If User who has requested the Projects and user whose Projects are being requested are same
+	 * then all the projects of the User will be exported. However, if both are different, 
+	 * then only {@code Public} Projects of the requested User will be exported.
+	 * 
+	 * @param currentUsername User who is requesting the Projects
+	 * @param requestedUsername User whose Projects are being requested
+	 * @param response Response the Projects are written to
+	 * @throws IllegalArgumentException - if the requested User was not present in the database
+	 * @throws IOException if the Projects could not be written to the response
+	 */
+	@GetMapping("projects/export")
+	private void exportProjectsOfRequestedUser(@RequestParam("currentUser") String currentUsername, 
+						   @RequestParam("requestedUser") String requestedUsername,
+						   HttpServletResponse response) throws IOException {
+		ProjectExport export = projectExportService.exportProjectsOfRequestedUser(currentUsername, requestedUsername);
+		response.setContentType(ProjectExportService.NDJSON_CONTENT_TYPE);
+		export.writeTo(response.getOutputStream());
+	}
+	
+	/**
+	 * Finds the Projects whose name or description contain every word of the query
+	 * <p>
+	 * Only {@code Public} Projects and the Projects of the User searching are found. Projects are served from
+	 * an in-memory index, without any query to the database.
+	 * 
+	 * @param currentUsername User who is searching, who must be the one the token was issued to
+	 * @param query Words to look for, matched regardless of case
+	 * @param limit Maximum number of Projects to return
+	 * @param authentication User the token of the request was issued to
+	 * @return Matching Projects, best matches first
+	 * @throws IllegalArgumentException if the query had no words, the limit was not positive or the User was not
+	 * the one the token was issued to
+	 */
+	@GetMapping("projects/search")
+	private List<ProjectSummary> searchProjects(@RequestParam("currentUser") String currentUsername,
+						    @RequestParam("query") String query,
+						    @RequestParam(value = "limit", defaultValue = "20") int limit,
+						    Authentication authentication) {
+		checkAuthenticatedUser(currentUsername, authentication);
+		List<ProjectSummary> projects = projectSearchService.searchProjects(query, currentUsername, limit);
+		return projects;
+	}
+	
+	/**
+	 * Locates the Projects whose name starts with a prefix, to suggest them while a name is being typed
+	 * <p>
+	 * Only {@code Public} Projects and the Projects of the User typing are suggested. Projects are served from
+	 * an in-memory index, without any query to the database.
+	 * 
+	 * @param currentUsername User who is typing, who must be the one the token was issued to
+	 * @param prefix Start of the names to look for, matched regardless of case
+	 * @param limit Maximum number of Projects to return
+	 * @param authentication User the token of the request was issued to
+	 * @return Matching Projects, ordered by name
+	 * @throws IllegalArgumentException if the prefix was empty, the limit was not positive or the User was not
+	 * the one the token was issued to
+	 */
+	@GetMapping("projects/suggest")
+	private List<ProjectSummary> suggestProjects(@RequestParam("currentUser") String currentUsername,
+						     @RequestParam("prefix") String prefix,
+						     @RequestParam(value = "limit", defaultValue = "10") int limit,
+						     Authentication authentication) {
+		checkAuthenticatedUser(currentUsername, authentication);
+		List<ProjectSummary> projects = projectSearchService.suggestProjects(prefix, currentUsername, limit);
 		return projects;
 	}
 	
+	/**
+	 * Streams the changes made to the Projects a User is allowed to see as Server-Sent Events, so that listings
+	 * can be kept up to date without polling them
+	 * <p>
+	 * Events named {@code created} and {@code modified} carry the details of the Project, and events named
+	 * {@code removed} only its Id, also sent once a Project of another User is made {@code Private}. Clients
+	 * reconnecting with the Id of the last event they received in {@code Last-Event-ID} get the events they missed,
+	 * or a {@code reset} event if they missed too many and have to reload their listings.
+	 * 
+	 * @param currentUsername User subscribing to the changes, who must be the one the token was issued to
+	 * @param lastEventId Id of the last event received before reconnecting
+	 * @param authentication User the token of the request was issued to
+	 * @return Stream of the changes
+	 * @throws IllegalArgumentException if the User was not present in the database or was not the one the token
+	 * was issued to, or the Id of the last event was invalid
+	 * @throws RejectedExecutionException if the feed was still loading or full
+	 */
+	@GetMapping(path = "projects/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	private SseEmitter subscribeToProjectEvents(@RequestParam("currentUser") String currentUsername,
+						    @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+						    Authentication authentication) {
+		checkAuthenticatedUser(currentUsername, authentication);
+		
+		if (userService.findUserByUsername(currentUsername) == null) {
+			throw new IllegalArgumentException("User credentials are invalid");
+		}
+		
+		SseEmitter emitter = projectEventFeed.subscribe(currentUsername, lastEventId);
+		return emitter;
+	}
+	
 	/**
 	 * Locates a Project in the database with requested Id requested by a User
 	 * <p>
 	 * The requested Project should either belong to the User requesting the Project, or else, 
-	 * it's visibility should be set to {@code Public}.
+	 * it's visibility should be set to {@code Public}. The response carries an entity tag derived from the
+	 * version of the Project, and {@code 304 Not Modified} is returned without serializing the Project if it
+	 * still matches the tag sent in {@code If-None-Match}.
 	 * 
 	 * @param id Id of the Project that needs to be located
 	 * @param currentUsername User requesting the Project details
-	 * @return The requested Project
+	 * @param ifNoneMatch Entity tags the client already holds
+	 * @return Details of the requested Project
 	 * @throws IllegalArgumentException if the requested Project did not belong to the requested User and it's
 	 * visibility was set to {@code Private}
 	 * @throws EmptyResultDataAccessException if Project with given Id was not present in the database
 	 */
 	@GetMapping("project")
-	private Project findProjectById(@RequestParam("currentUser") String currentUsername, 
-					@RequestParam("projectId") Integer id) {	
-		Project project = projectService.findProjectById(id, currentUsername);
+	private ResponseEntity<ProjectSummary> findProjectById(@RequestParam("currentUser") String currentUsername, 
+							       @RequestParam("projectId") Integer id,
+							       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {	
+		ResponseEntity<ProjectSummary> project = projectRequestService.findProjectById(id, currentUsername, ifNoneMatch);
 		return project;
 	}
 	
 	/**
 	 * Modifies the details of of the requested Project.
 	 * <p>
-	 * Only Project description and Visibility can be modified.
+	 * Only Project name, description and Visibility can be modified.
 	 * User(Owner) credentials of the project are not allowed to be modified.
 	 * New Name of the Project should be chosen such that it is already not used by any existing Project 
-	 * in the database.
+	 * in the database. If the {@code version} of the Project is sent along, the Project is only modified if 
+	 * nobody else has modified it since.
+	 * <p>
+	 * With {@code writeBehind}, the modification is acknowledged as soon as it has been checked, and written
+	 * shortly after along with the later modifications of the same Project, see 
+	 * {@link ProjectService#modifyProjectLater(Project, String)}.
 	 * 
 	 * @param newProjectDetails Project with new credentials
-	 * @return The modified Project whose credentials have been modified
+	 * @param currentUsername User who is modifying the Project
+	 * @param writeBehind Whether the modification can be written after it has been acknowledged
+	 * @return Details of the modified Project
 	 * @throws EmptyResultDataAccessException if Project with given Id was not present in the database
 	 * @throws IllegalArgumentException if User credentials of the project were attempted to be modified or 
-	 * if the proposed Project name was null or empty or proposed User is null or is not present in the database
+	 * if the proposed Project name was null or empty or the Project does not belong to the current User
+	 * @throws OptimisticLockingFailureException if the Project has been modified since the version sent along
 	 * @throws DataIntegrityViolationException if current Project name had already been taken by an existing 
 	 * Project in the database
 	 */
 	@PutMapping("project/modify")
-	private Project modifyProject(@RequestBody Project newProjectDetails, 
-				      @RequestParam("user") String currentUsername) {
-		if (newProjectDetails.getUser() == null) {
-			throw new IllegalArgumentException("User credentials are invalid");
-		}
-		
-		User currentUser = userService.findUserByUsername(currentUsername);
-		
-		if (currentUser.getId() != newProjectDetails.getUser().getId() ||
-			!currentUser.getUsername().equals(newProjectDetails.getUser().getUsername()) ||
-			!currentUser.getPassword().equals(newProjectDetails.getUser().getPassword())) {
-			throw new IllegalArgumentException("User details cannot be modified");
-		}
-		
-		String name = newProjectDetails.getName();
-		
-		if (name == null || name.trim().isEmpty()) {
-			throw new IllegalArgumentException("Project name cannot be null or empty");
-		}
-		
-		try {
-			Project modifiedProject = projectService.modifyProject(newProjectDetails);
-			return modifiedProject;
-		} catch (DataIntegrityViolationException ex) {
-			throw new DataIntegrityViolationException("Project name has already been taken. Try a new one.");
-		} catch (EmptyResultDataAccessException ex) {
-			throw ex;
-		}
+	private ProjectSummary modifyProject(@RequestBody Project newProjectDetails, 
+					     @RequestParam("user") String currentUsername,
+					     @RequestParam(value = "writeBehind", defaultValue = "false") boolean writeBehind) {
+		ProjectSummary modifiedProject = projectRequestService.modifyProject(newProjectDetails, currentUsername, writeBehind);
+		return modifiedProject;
 	}
 	
 	/**
@@ -185,4 +351,35 @@ public class ProjectController {
 				   @RequestParam("user") String currentUsername) {
 		projectService.removeProject(id, currentUsername);
 	}
+	
+	/**
+	 * Deletes the Projects present in the database with given Ids
+	 * <p>
+	 * Only Projects belonging to the current User are deleted, other Ids are skipped.
+	 * 
+	 * @param ids Ids of the Projects to be deleted
+	 * @param currentUsername User who is deleting the Projects
+	 * @return Number of Projects deleted
+	 * @throws IllegalArgumentException if the batch was empty or too large
+	 */
+	@PostMapping("projects/remove")
+	private int removeProjects(@RequestBody List<Integer> ids, 
+				   @RequestParam("user") String currentUsername) {
+		int removedProjects = projectService.removeProjects(ids, currentUsername);
+		return removedProjects;
+	}
+	
+	/**
+	 * Makes sure that the User named by a request is the one its JSON Web Token was issued to, for the endpoints
+	 * that reveal the {@code Private} Projects of the User
+	 * 
+	 * @param currentUsername User named by the request
+	 * @param authentication User the token of the request was issued to
+	 * @throws IllegalArgumentException if they were not the same User
+	 */
+	static void checkAuthenticatedUser(String currentUsername, Authentication authentication) {
+		if (authentication == null || !authentication.getName().equals(currentUsername)) {
+			throw new IllegalArgumentException("User credentials are invalid");
+		}
+	}
 }
@@ -0,0 +1,66 @@
+package org.lawcubator.assignment.userRegistrationBackend.controller;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.lawcubator.assignment.userRegistrationBackend.metrics.QueryCounter;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Bounded executor running the database work of the asynchronous Project endpoints
+ * <p>
+ * At most {@code project.async.pool-size} requests run at a time, which should not exceed the size of the 
+ * connection pool, and at most {@code project.async.queue-capacity} more wait for their turn. Requests arriving
+ * once the queue is full are rejected straight away with {@code RejectedExecutionException}, instead of holding
+ * a servlet thread or a connection while they wait. The statements of the work are counted along with those of
+ * the request that submitted it.
+ */
+@Component
+public class ProjectRequestExecutor implements DisposableBean {
+
+	private final ExecutorService executor;
+	private final QueryCounter queryCounter;
+	
+	@Autowired
+	public ProjectRequestExecutor(MeterRegistry meterRegistry, QueryCounter queryCounter,
+				      @Value("${project.async.pool-size:10}") int poolSize,
+				      @Value("${project.async.queue-capacity:100}") int queueCapacity) {
+		AtomicInteger threadNumber = new AtomicInteger();
+		ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS, 
+									       new ArrayBlockingQueue<>(queueCapacity), 
+									       runnable -> new Thread(runnable, "project-request-" + threadNumber.incrementAndGet()),
+									       new ThreadPoolExecutor.AbortPolicy());
+		// Records the time requests wait in the queue and run, along with the size of the queue
+		this.executor = ExecutorServiceMetrics.monitor(meterRegistry, threadPoolExecutor, "projectRequests");
+		this.queryCounter = queryCounter;
+	}
+	
+	/**
+	 * Runs the given work on the executor
+	 * 
+	 * @param <T> Type of the result of the work
+	 * @param work Work to be run
+	 * @return Result of the work, completed exceptionally if the work has thrown
+	 * @throws RejectedExecutionException if the executor was already busy with as many requests as it can hold
+	 */
+	public <T> CompletableFuture<T> submit(Supplier<T> work) {
+		return CompletableFuture.supplyAsync(queryCounter.propagate(work), executor);
+	}
+	
+	@Override
+	public void destroy() {
+		executor.shutdown();
+	}
+}
@@ -7,6 +7,7 @@ import org.lawcubator.assignment.userRegistrationBackend.security.jwt.JWTUtil;
 import org.lawcubator.assignment.userRegistrationBackend.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -22,6 +23,8 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping(path = "userApi/v1/")
 public class UserController {
 
+	private static final String USERNAME_TAKEN_MESSAGE = "Username has already been taken";
+
 	private final AuthenticationManager authenticationManager;
 	private final JWTUtil jwtUtil;
 	private final UserService userService;
@@ -38,16 +41,20 @@ public class UserController {
 	/**
 	 * Registers a new User to the database
 	 * <p>
-	 * It returns a JSON Web Token that can be used to access protected resources of the API
+	 * It returns a JSON Web Token that can be used to access protected resources of the API. The User is not
+	 * authenticated again after being saved, which would hash the password a second time. Usernames that have 
+	 * already been taken are rejected with {@code 400 Bad Request} before the password is hashed and before any
+	 * transaction is started, most of the time without querying the database at all.
 	 * 
 	 * @param userToBeSaved A new User to be saved to the database
-	 * @return JSON Web Token for the current User
-	 * @throws DataIntegrityViolationException if the User username and password match with any other User's 
-	 * credentials in the database
+	 * @return JSON Web Token for the current User, or the reason the User was rejected if the username had
+	 * already been taken
+	 * @throws DataIntegrityViolationException if the username had been taken by any other User in the database
+	 * while the User was being saved
 	 * @throws IllegalArgumentException if User credentials were null or empty
 	 */
 	@PostMapping("signup")
-	private AuthenticationResponse saveUser(@RequestBody User userToBeSaved) {
+	private ResponseEntity<Object> saveUser(@RequestBody User userToBeSaved) {
 		if (userToBeSaved.getPassword() == null ||
 			userToBeSaved.getUsername() == null ||
 			userToBeSaved.getUsername().trim().isEmpty() ||
@@ -56,12 +63,17 @@ public class UserController {
 			throw new IllegalArgumentException("Password or Username cannot be null or empty");
 		}
 		
+		if (userService.isUsernameTaken(userToBeSaved.getUsername())) {
+			return ResponseEntity.badRequest().body(USERNAME_TAKEN_MESSAGE);
+		}
+		
 		try {
 			User savedUser = userService.saveUser(userToBeSaved);
-			AuthenticationResponse jwtResponse = authenticateUser(new AuthenticationRequest(savedUser.getUsername(), savedUser.getPassword()));
-			return jwtResponse;
+			UserDetails userDetails = userService.loadUserByUsername(savedUser.getUsername());
+			AuthenticationResponse jwtResponse = new AuthenticationResponse(jwtUtil.generateToken(userDetails));
+			return ResponseEntity.ok(jwtResponse);
 		} catch (DataIntegrityViolationException ex) {
-			throw new DataIntegrityViolationException("Username or Password has already been taken");
+			throw new DataIntegrityViolationException(USERNAME_TAKEN_MESSAGE);
 		}
 	}
 	
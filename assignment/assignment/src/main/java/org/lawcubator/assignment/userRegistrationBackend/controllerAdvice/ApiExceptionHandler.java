@@ -1,7 +1,13 @@
 package org.lawcubator.assignment.userRegistrationBackend.controllerAdvice;
 
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -17,6 +23,14 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
 
 	private static final String NO_DATA_ERROR_MESSAGE = "No data found with given input";
+	private static final String OVERLOADED_ERROR_MESSAGE = "Request cannot be served right now. Try again later.";
+	
+	private final Duration retryAfter;
+	
+	@Autowired
+	public ApiExceptionHandler(@Value("${project.async.retry-after:1s}") Duration retryAfter) {
+		this.retryAfter = retryAfter;
+	}
 	
 	/**
 	 * Handles {@code DataIntegrityViolationException} in the case of violation of any unique key constraints
@@ -44,6 +58,19 @@ public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
 		return handleExceptionInternal(rex, NO_DATA_ERROR_MESSAGE, new HttpHeaders(), HttpStatus.NOT_FOUND, wx);
 	}
 	
+	/**
+	 * Handles {@code OptimisticLockingFailureException} in the case if an entity being modified 
+	 * has been modified by someone else since it was read
+	 * 
+	 * @param rex The Exception encountered
+	 * @param wx The current Web Request
+	 * @return Response Entity with appropriate message and status
+	 */
+	@ExceptionHandler(value = OptimisticLockingFailureException.class)
+	private ResponseEntity<Object> handleConflict(RuntimeException rex, WebRequest wx) {
+		return handleExceptionInternal(rex, rex.getMessage(), new HttpHeaders(), HttpStatus.CONFLICT, wx);
+	}
+	
 	/**
 	 * Handles {@code IllegalArgumentException} in the case of any activity or action being 
 	 * requested was not allowed to be performed, or, if User credentials are not present in the database
@@ -57,4 +84,19 @@ public class ApiExceptionHandler extends ResponseEntityExceptionHandler {
 	private ResponseEntity<Object> handleIllegalAccess(RuntimeException rex, WebRequest wx) {
 		return handleExceptionInternal(rex, rex.getMessage(), new HttpHeaders(), HttpStatus.BAD_REQUEST, wx);
 	}
+	
+	/**
+	 * Handles {@code RejectedExecutionException} in the case if a request could not be handed over 
+	 * to an executor that was already full, or could not be served before the application had finished starting
+	 * 
+	 * @param rex The Exception encountered
+	 * @param wx The current Web Request
+	 * @return Response Entity with appropriate message and status, telling when to retry
+	 */
+	@ExceptionHandler(value = RejectedExecutionException.class)
+	private ResponseEntity<Object> handleOverload(RuntimeException rex, WebRequest wx) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.toSeconds())));
+		return handleExceptionInternal(rex, OVERLOADED_ERROR_MESSAGE, headers, HttpStatus.SERVICE_UNAVAILABLE, wx);
+	}
 }
@@ -0,0 +1,425 @@
+package org.lawcubator.assignment.userRegistrationBackend.feed;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.lawcubator.assignment.userRegistrationBackend.model.Visibility;
+import org.lawcubator.assignment.userRegistrationBackend.repository.ProjectRepository;
+import org.lawcubator.assignment.userRegistrationBackend.service.ProjectChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Service Implementation that streams the changes made to Projects as Server-Sent Events
+ * <p>
+ * Every {@link ProjectChangeEvent} is turned into a {@code created}, {@code modified} or {@code removed} event,
+ * once its transaction has been committed, and pushed to the subscribers allowed to see it: the owner of the
+ * Project, and every other User if the Project is {@code Public}. A Project made {@code Private} is
+ * {@code removed} for the other Users, and their events of a deleted Project only carry its Id, only if it was
+ * {@code Public}. To tell, the Ids of the {@code Public} Projects are loaded once the application is ready, and
+ * subscriptions are rejected until then.
+ * <p>
+ * Changes of a Project are pushed in order of its version: a change older than, or as old as, the last one pushed
+ * for the Project is dropped, and so is any change of a Project deleted in the last
+ * {@value #LATEST_VERSIONS_EXPIRY_MINUTES} minutes.
+ * <p>
+ * The last {@code project.feed.history-size} events are kept, so that a subscriber reconnecting with the Id of the
+ * last event it received resumes right after it. A subscriber whose event is no longer kept, or who received it
+ * before the application was restarted, gets a {@code reset} event instead, telling it to reload the Projects.
+ * <p>
+ * Events are sent to every subscriber from its own buffer of {@code project.feed.subscriber-buffer} events, by a
+ * small pool of threads. A subscriber whose buffer is full is disconnected, so that slow subscribers never hold
+ * back the others, and can resume from its last event once it reconnects.
+ */
+@Service
+public class ProjectEventFeed implements DisposableBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProjectEventFeed.class);
+	private static final long LATEST_VERSIONS_EXPIRY_MINUTES = 10;
+	
+	private final ProjectRepository projectRepository;
+	private final TransactionTemplate transactionTemplate;
+	// Tells events sent before a restart apart from the ones sent after it
+	private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+	private final Object lock = new Object();
+	private final FeedEvent[] history;
+	private final BitSet publicProjects = new BitSet();
+	private final Set<Integer> changedWhileLoading = new HashSet<>();
+	// Versions of the last changes pushed, Long.MAX_VALUE once deleted
+	private final Cache<Integer, Long> latestVersions = Caffeine.newBuilder()
+								    .expireAfterWrite(Duration.ofMinutes(LATEST_VERSIONS_EXPIRY_MINUTES))
+								    .build();
+	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+	private final ScheduledExecutorService senders;
+	private final int subscriberBufferSize;
+	private final int maximumSubscribers;
+	private final long timeoutMillis;
+	private final Counter evictions;
+	private long nextSequence = 1;
+	private volatile boolean loaded;
+	
+	@Autowired
+	public ProjectEventFeed(ProjectRepository projectRepository,
+				PlatformTransactionManager transactionManager,
+				MeterRegistry meterRegistry,
+				@Value("${project.feed.history-size:10000}") int historySize,
+				@Value("${project.feed.subscriber-buffer:256}") int subscriberBufferSize,
+				@Value("${project.feed.max-subscribers:1000}") int maximumSubscribers,
+				@Value("${project.feed.sender-threads:2}") int senderThreads,
+				@Value("${project.feed.heartbeat-interval:15s}") Duration heartbeatInterval,
+				@Value("${project.feed.timeout:30m}") Duration timeout) {
+		this.projectRepository = projectRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+		this.history = new FeedEvent[historySize];
+		this.subscriberBufferSize = subscriberBufferSize;
+		this.maximumSubscribers = maximumSubscribers;
+		this.timeoutMillis = timeout.toMillis();
+		this.evictions = Counter.builder("project.feed.evictions")
+					.description("Subscribers disconnected since they could not keep up with the events")
+					.register(meterRegistry);
+		Gauge.builder("project.feed.subscribers", subscribers, Set::size)
+		     .description("Subscribers connected to the feed of Project changes")
+		     .register(meterRegistry);
+		
+		AtomicInteger threadNumber = new AtomicInteger();
+		this.senders = Executors.newScheduledThreadPool(senderThreads, runnable -> {
+			Thread thread = new Thread(runnable, "project-feed-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		long heartbeatMillis = heartbeatInterval.toMillis();
+		senders.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Subscribes a User to the changes of the Projects it is allowed to see
+	 * 
+	 * @param currentUsername User who is subscribing
+	 * @param lastEventId Id of the last event the User received before reconnecting, or null for new subscriptions
+	 * @return Emitter the events are sent through
+	 * @throws IllegalArgumentException if the Id of the last event was invalid
+	 * @throws RejectedExecutionException if the feed was still loading or had as many subscribers as it can hold
+	 */
+	public SseEmitter subscribe(String currentUsername, String lastEventId) {
+		return subscribe(currentUsername, lastEventId, new SseEmitter(timeoutMillis));
+	}
+	
+	SseEmitter subscribe(String currentUsername, String lastEventId, SseEmitter emitter) {
+		if (!loaded) {
+			throw new RejectedExecutionException("Project feed is still loading");
+		}
+		
+		if (subscribers.size() >= maximumSubscribers) {
+			throw new RejectedExecutionException("Project feed has too many subscribers");
+		}
+		
+		Long lastSequence = parseSequence(lastEventId);
+		
+		synchronized (lock) {
+			List<FeedEvent> missedEvents = (lastSequence == null) ? List.of() : findEventsAfter(lastSequence, currentUsername);
+			Subscriber subscriber = new Subscriber(currentUsername, emitter, subscriberBufferSize + missedEvents.size());
+			emitter.onCompletion(() -> subscribers.remove(subscriber));
+			emitter.onTimeout(subscriber::close);
+			emitter.onError(ex -> subscriber.close());
+			// Registered along with the missed events, so that no event is sent twice or skipped in between
+			subscribers.add(subscriber);
+			missedEvents.forEach(subscriber::enqueue);
+		}
+		
+		return emitter;
+	}
+	
+	/**
+	 * Pushes a change made to a Project to its subscribers, once its transaction has been committed
+	 * 
+	 * @param event Change made to the Project, ignored if a change of the same or a newer version of the Project
+	 * has already been pushed, or if the Project has since been deleted
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onProjectChange(ProjectChangeEvent event) {
+		synchronized (lock) {
+			int projectId = event.getProjectId();
+			long version = (event.getType() == ProjectChangeEvent.Type.REMOVED) ? Long.MAX_VALUE : version(event.getProject());
+			Long latestVersion = latestVersions.getIfPresent(projectId);
+			
+			if (latestVersion != null && latestVersion >= version) {
+				return;
+			}
+			
+			latestVersions.put(projectId, version);
+			boolean wasPublic = publicProjects.get(projectId);
+			boolean isPublic = event.getType() == ProjectChangeEvent.Type.SAVED && event.getProject().getVisibility() != Visibility.PRIVATE;
+			publicProjects.set(projectId, isPublic);
+			
+			if (!loaded) {
+				changedWhileLoading.add(projectId);
+			}
+			
+			FeedEvent feedEvent = new FeedEvent(nextSequence++, event, wasPublic, isPublic);
+			history[(int) (feedEvent.sequence % history.length)] = feedEvent;
+			
+			for (Subscriber subscriber : subscribers) {
+				if (feedEvent.isVisibleTo(subscriber.username)) {
+					subscriber.enqueue(feedEvent);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Starts loading the Ids of the {@code Public} Projects once the application is ready, so that the scan does
+	 * not delay the startup
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void loadPublicProjects() {
+		Thread loader = new Thread(this::scanPublicProjects, "project-feed-loader");
+		loader.setDaemon(true);
+		loader.start();
+	}
+	
+	private void scanPublicProjects() {
+		try {
+			// Streaming queries need a transaction that keeps the connection open until the last row has been read
+			transactionTemplate.executeWithoutResult(status -> {
+				try (Stream<Integer> ids = projectRepository.streamPublicProjectIds()) {
+					ids.forEach(id -> {
+						synchronized (lock) {
+							// Changes made while loading are newer than the row, or as new
+							if (!changedWhileLoading.contains(id)) {
+								publicProjects.set(id);
+							}
+						}
+					});
+				}
+			});
+		} catch (RuntimeException ex) {
+			LOGGER.error("Project feed could not be loaded, subscriptions will keep being rejected", ex);
+			return;
+		}
+		
+		synchronized (lock) {
+			changedWhileLoading.clear();
+			loaded = true;
+		}
+	}
+	
+	@Override
+	public void destroy() {
+		senders.shutdownNow();
+		subscribers.forEach(subscriber -> subscriber.emitter.complete());
+	}
+	
+	private Long parseSequence(String lastEventId) {
+		if (lastEventId == null || lastEventId.isEmpty()) {
+			return null;
+		}
+		
+		int separator = lastEventId.indexOf('-');
+		
+		try {
+			long sequence = Long.parseLong(lastEventId.substring(separator + 1));
+			// Events sent before a restart cannot be resumed from
+			return lastEventId.substring(0, Math.max(0, separator)).equals(epoch) ? sequence : -1L;
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("Last event Id is invalid");
+		}
+	}
+	
+	/**
+	 * @return Events visible to the User sent after the given one, or a single reset event if some of them are no
+	 * longer kept
+	 */
+	private List<FeedEvent> findEventsAfter(long lastSequence, String currentUsername) {
+		long oldestSequence = Math.max(1, nextSequence - history.length);
+		
+		if (lastSequence < oldestSequence - 1 || lastSequence >= nextSequence) {
+			return List.of(FeedEvent.reset(nextSequence - 1));
+		}
+		
+		List<FeedEvent> missedEvents = new ArrayList<>();
+		
+		for (long sequence = lastSequence + 1; sequence < nextSequence; sequence++) {
+			FeedEvent event = history[(int) (sequence % history.length)];
+			if (event.isVisibleTo(currentUsername)) {
+				missedEvents.add(event);
+			}
+		}
+		
+		return missedEvents;
+	}
+	
+	private static long version(ProjectSummary project) {
+		return (project.getVersion() == null) ? 0 : project.getVersion();
+	}
+	
+	private void sendHeartbeats() {
+		for (Subscriber subscriber : subscribers) {
+			subscriber.enqueue(FeedEvent.HEARTBEAT);
+		}
+	}
+	
+	/**
+	 * Change made to a Project, as seen by the subscribers
+	 */
+	private static final class FeedEvent {
+		
+		private static final FeedEvent HEARTBEAT = new FeedEvent(0, null, false, false);
+		
+		private final long sequence;
+		private final ProjectChangeEvent change;
+		private final boolean wasPublic;
+		private final boolean isPublic;
+		
+		private FeedEvent(long sequence, ProjectChangeEvent change, boolean wasPublic, boolean isPublic) {
+			this.sequence = sequence;
+			this.change = change;
+			this.wasPublic = wasPublic;
+			this.isPublic = isPublic;
+		}
+		
+		/**
+		 * @param lastSequence Sequence number of the last event sent
+		 * @return Event telling a subscriber that it missed some events
+		 */
+		private static FeedEvent reset(long lastSequence) {
+			return new FeedEvent(lastSequence, null, false, false);
+		}
+		
+		private boolean isVisibleTo(String username) {
+			return isPublic || wasPublic || change.getOwnerUsername().equals(username);
+		}
+		
+		private SseEmitter.SseEventBuilder toSseEvent(String epoch, String username) {
+			if (this == HEARTBEAT) {
+				return SseEmitter.event().comment("heartbeat");
+			}
+			
+			SseEmitter.SseEventBuilder event = SseEmitter.event().id(epoch + "-" + sequence);
+			
+			if (change == null) {
+				return event.name("reset").data("");
+			}
+			
+			// Projects the User is no longer allowed to see are removed from its view
+			if (change.getType() == ProjectChangeEvent.Type.REMOVED || (!isPublic && !change.getOwnerUsername().equals(username))) {
+				return event.name("removed").data(Map.of("id", change.getProjectId()), MediaType.APPLICATION_JSON);
+			}
+			
+			ProjectSummary project = change.getProject();
+			boolean created = project.getVersion() == null || project.getVersion() == 0;
+			return event.name(created ? "created" : "modified").data(project, MediaType.APPLICATION_JSON);
+		}
+	}
+	
+	/**
+	 * Connection of a User to the feed, with the events that have not been sent to it yet
+	 */
+	private final class Subscriber {
+		
+		private final String username;
+		private final SseEmitter emitter;
+		private final BlockingQueue<FeedEvent> pendingEvents;
+		private final AtomicBoolean sending = new AtomicBoolean();
+		private final AtomicBoolean closed = new AtomicBoolean();
+		private final AtomicBoolean evicted = new AtomicBoolean();
+		
+		private Subscriber(String username, SseEmitter emitter, int bufferSize) {
+			this.username = username;
+			this.emitter = emitter;
+			this.pendingEvents = new ArrayBlockingQueue<>(bufferSize);
+		}
+		
+		private void enqueue(FeedEvent event) {
+			if (closed.get()) {
+				return;
+			}
+			
+			if (!pendingEvents.offer(event)) {
+				evictions.increment();
+				close();
+				// Completing waits for the send in progress, so it is left to the sender rather than done under the lock
+				evicted.set(true);
+				scheduleSending();
+				return;
+			}
+			
+			scheduleSending();
+		}
+		
+		private void scheduleSending() {
+			if (sending.compareAndSet(false, true)) {
+				try {
+					senders.execute(this::sendPendingEvents);
+				} catch (RejectedExecutionException ex) {
+					// Shutting down
+					sending.set(false);
+				}
+			}
+		}
+		
+		private void sendPendingEvents() {
+			try {
+				FeedEvent event;
+				while (!closed.get() && (event = pendingEvents.poll()) != null) {
+					emitter.send(event.toSseEvent(epoch, username));
+				}
+			} catch (IOException | IllegalStateException ex) {
+				// Disconnected, or completed in the meantime
+				close();
+			} finally {
+				sending.set(false);
+			}
+			
+			if (evicted.compareAndSet(true, false)) {
+				emitter.complete();
+				return;
+			}
+			
+			// Events enqueued after the last poll, but before sending was released, would be left behind otherwise
+			if (!closed.get() && !pendingEvents.isEmpty()) {
+				scheduleSending();
+			}
+		}
+		
+		private void close() {
+			closed.set(true);
+			subscribers.remove(this);
+		}
+	}
+}
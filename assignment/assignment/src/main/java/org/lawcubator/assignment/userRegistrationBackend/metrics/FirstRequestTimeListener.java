@@ -0,0 +1,52 @@
+package org.lawcubator.assignment.userRegistrationBackend.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+
+/**
+ * Records the time taken from the start of the JVM until the first request has been served, under
+ * {@code application.first-request.time}
+ * <p>
+ * Spring Boot already records the time taken until the application has started and is ready, under
+ * {@code application.started.time} and {@code application.ready.time}. This one also covers whatever is only
+ * initialized by the first request, which is what a new instance added to take on load has to go through.
+ */
+@Component
+public class FirstRequestTimeListener implements ApplicationListener<ServletRequestHandledEvent> {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(FirstRequestTimeListener.class);
+	
+	private final MeterRegistry meterRegistry;
+	private final AtomicBoolean firstRequestServed = new AtomicBoolean();
+	
+	@Autowired
+	public FirstRequestTimeListener(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+	
+	@Override
+	public void onApplicationEvent(ServletRequestHandledEvent event) {
+		if (firstRequestServed.get() || !firstRequestServed.compareAndSet(false, true)) {
+			return;
+		}
+		
+		long firstRequestMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+		TimeGauge.builder("application.first-request.time", () -> firstRequestMillis, TimeUnit.MILLISECONDS)
+			 .description("Time taken from the start of the JVM until the first request was served")
+			 .register(meterRegistry);
+		
+		LOGGER.info("Served the first request ({} {}) {} ms after the JVM started", 
+			    event.getMethod(), event.getRequestUrl(), firstRequestMillis);
+	}
+}
@@ -0,0 +1,40 @@
+package org.lawcubator.assignment.userRegistrationBackend.metrics;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Configuration of the metrics recorded on top of the ones Spring Boot records by itself
+ * <p>
+ * Endpoints are already timed under {@code http.server.requests}, the connection pool under {@code hikaricp.*}
+ * and Hibernate statistics under {@code hibernate.*}. This adds the timing of methods annotated with 
+ * {@code @Timed} and the number of SQL statements of every request.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+	@Bean
+	public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+		return new TimedAspect(meterRegistry);
+	}
+	
+	@Bean
+	public QueryCounter queryCounter() {
+		return new QueryCounter();
+	}
+	
+	@Bean
+	public HibernatePropertiesCustomizer queryCounterCustomizer(QueryCounter queryCounter) {
+		return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, queryCounter);
+	}
+	
+	@Bean
+	public QueryCountFilter queryCountFilter(QueryCounter queryCounter, MeterRegistry meterRegistry) {
+		return new QueryCountFilter(queryCounter, meterRegistry);
+	}
+}
@@ -0,0 +1,112 @@
+package org.lawcubator.assignment.userRegistrationBackend.metrics;
+
+import java.io.IOException;
+import java.util.function.IntSupplier;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Records the number of SQL statements every request has caused under {@code http.server.requests.queries}
+ * <p>
+ * It runs ahead of the security filters, so the statements issued while authenticating the request are counted too.
+ * Requests are tagged with their method and URI template, the same way {@code http.server.requests} is, 
+ * so that a request suddenly needing more queries can be spotted without turning on SQL logging.
+ * Statements run on other threads are counted if the work was handed over with {@link QueryCounter#propagate},
+ * as the asynchronous Project endpoints do, and asynchronous requests are recorded once they have completed.
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class QueryCountFilter extends OncePerRequestFilter {
+
+	private final QueryCounter queryCounter;
+	private final MeterRegistry meterRegistry;
+	
+	public QueryCountFilter(QueryCounter queryCounter, MeterRegistry meterRegistry) {
+		this.queryCounter = queryCounter;
+		this.meterRegistry = meterRegistry;
+	}
+	
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+		queryCounter.reset();
+		IntSupplier count = queryCounter.current();
+		boolean async = false;
+		
+		try {
+			filterChain.doFilter(request, response);
+			
+			if (request.isAsyncStarted()) {
+				async = true;
+				request.getAsyncContext().addListener(new RecordingListener(request, count));
+			}
+		} finally {
+			queryCounter.clear();
+			
+			if (!async) {
+				record(request, count.getAsInt());
+			}
+		}
+	}
+	
+	private void record(HttpServletRequest request, int count) {
+		DistributionSummary.builder("http.server.requests.queries")
+				   .description("SQL statements prepared while handling a request")
+				   .tag("method", request.getMethod())
+				   .tag("uri", uri(request))
+				   .register(meterRegistry)
+				   .record(count);
+	}
+	
+	private static String uri(HttpServletRequest request) {
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		// Unmatched URIs are not tagged with their path, which would make the number of meters unbounded
+		return (pattern != null) ? pattern.toString() : "UNKNOWN";
+	}
+	
+	/**
+	 * Records the statements of an asynchronous request once it has completed, whether it succeeded, failed or
+	 * timed out
+	 */
+	private final class RecordingListener implements AsyncListener {
+		
+		private final HttpServletRequest request;
+		private final IntSupplier count;
+		
+		private RecordingListener(HttpServletRequest request, IntSupplier count) {
+			this.request = request;
+			this.count = count;
+		}
+		
+		@Override
+		public void onComplete(AsyncEvent event) {
+			record(request, count.getAsInt());
+		}
+		
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			// onComplete follows
+		}
+		
+		@Override
+		public void onError(AsyncEvent event) {
+			// onComplete follows
+		}
+		
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			// Not restarted by the asynchronous Project endpoints
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package org.lawcubator.assignment.userRegistrationBackend.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread
+ * <p>
+ * It is registered as the statement inspector of the session factory, so it sees every statement before it is
+ * prepared and returns it unchanged. A statement executed as a JDBC batch is prepared, and counted, only once.
+ * Work handed over to another thread is counted along with the statements of the thread that handed it over when
+ * it is wrapped with {@link #propagate(Supplier)}.
+ */
+public class QueryCounter implements StatementInspector {
+
+	private static final long serialVersionUID = 1L;
+	
+	private final transient ThreadLocal<AtomicInteger> count = ThreadLocal.withInitial(AtomicInteger::new);
+	
+	@Override
+	public String inspect(String sql) {
+		count.get().incrementAndGet();
+		return sql;
+	}
+	
+	/**
+	 * Starts counting from zero on the current thread
+	 * <p>
+	 * The counter of the previous count is left untouched, since work handed over to another thread may still be
+	 * adding to it.
+	 */
+	public void reset() {
+		count.set(new AtomicInteger());
+	}
+	
+	/**
+	 * @return Number of statements prepared on the current thread since the last reset
+	 */
+	public int getCount() {
+		return count.get().get();
+	}
+	
+	/**
+	 * @return Number of statements counted since the last reset on the current thread, as it will be once the
+	 * work handed over to other threads is done
+	 */
+	public IntSupplier current() {
+		return count.get()::get;
+	}
+	
+	/**
+	 * Stops counting on the current thread, releasing its counter
+	 */
+	public void clear() {
+		count.remove();
+	}
+	
+	/**
+	 * @param <T> Type of the result of the work
+	 * @param work Work to be run on another thread
+	 * @return Work counting its statements along with those of the current thread
+	 */
+	public <T> Supplier<T> propagate(Supplier<T> work) {
+		AtomicInteger counter = count.get();
+		
+		return () -> {
+			AtomicInteger previous = count.get();
+			count.set(counter);
+			
+			try {
+				return work.get();
+			} finally {
+				count.set(previous);
+			}
+		};
+	}
+}
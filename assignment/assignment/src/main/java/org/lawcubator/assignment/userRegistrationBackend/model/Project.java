@@ -8,19 +8,27 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Version;
 
 /**
  * Represents a Project that is going to be owned by an application User. 
  * <p>
- * A Project has {@code many-to-one} relationship with a User
+ * A Project has {@code many-to-one} relationship with a User. Projects are indexed by their User and
+ * visibility, so that the Projects of a User can be looked up by visibility without reading the other ones.
+ * Its version is incremented every time it is modified.
  */
 @Entity
+@Table(indexes = @Index(name = "project_user_visibility_index", columnList = "userId, visibility"))
 public class Project {
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "project_sequence")
+	@SequenceGenerator(name = "project_sequence", sequenceName = "project_sequence", allocationSize = 50)
 	private Integer id;
 	
 	@Column(nullable = false, unique = true)
@@ -35,6 +43,9 @@ public class Project {
 	@JoinColumn(name = "userId", nullable = false)
 	private User user;
 	
+	@Version
+	private Long version;
+	
 	public Project() {
 		
 	}
@@ -78,9 +89,13 @@ public class Project {
 		return user;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
 	@Override
 	public String toString() {
 		return "Project [id=" + id + ", name=" + name + ", description=" + description + ", visibility=" + visibility
-				+ ", user=" + user + "]";
+				+ ", user=" + user + ", version=" + version + "]";
 	}
 }
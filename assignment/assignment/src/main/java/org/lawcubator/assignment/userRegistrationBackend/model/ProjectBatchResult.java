@@ -0,0 +1,55 @@
+package org.lawcubator.assignment.userRegistrationBackend.model;
+
+/**
+ * Represents the outcome of saving a single Project out of a batch of Projects
+ * <p>
+ * {@code index} is the position of the Project in the batch that was sent. If the Project could not be saved,
+ * {@code id} is {@code null} and {@code error} describes why.
+ */
+public class ProjectBatchResult {
+
+	private final int index;
+	private final Integer id;
+	private final String name;
+	private final String error;
+
+	private ProjectBatchResult(int index, Integer id, String name, String error) {
+		this.index = index;
+		this.id = id;
+		this.name = name;
+		this.error = error;
+	}
+
+	public static ProjectBatchResult saved(int index, Project savedProject) {
+		return new ProjectBatchResult(index, savedProject.getId(), savedProject.getName(), null);
+	}
+
+	public static ProjectBatchResult rejected(int index, String name, String error) {
+		return new ProjectBatchResult(index, null, name, error);
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public boolean isSaved() {
+		return error == null;
+	}
+
+	@Override
+	public String toString() {
+		return "ProjectBatchResult [index=" + index + ", id=" + id + ", name=" + name + ", error=" + error + "]";
+	}
+}
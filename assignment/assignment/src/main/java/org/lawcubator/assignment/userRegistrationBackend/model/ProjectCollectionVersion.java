@@ -0,0 +1,87 @@
+package org.lawcubator.assignment.userRegistrationBackend.model;
+
+/**
+ * Represents the version of a collection of Projects, derived from the number of Projects in the collection and
+ * from two sums of a hash of the Id and the version of every Project
+ * <p>
+ * Saving or deleting any Project of the collection, or moving a Project in or out of it, changes the pair of Id
+ * and version of at least one Project of the collection. The hashes are cubes modulo a prime of a mix of both, so
+ * unlike sums of the Ids and versions themselves, different collections of the same size only share a version by
+ * chance, with a probability of about one in 2^62.
+ * <p>
+ * The hashes are computed by the queries with {@link #FIRST_HASH} and {@link #SECOND_HASH}, and in memory with
+ * {@link #firstHash(Integer, Long)} and {@link #secondHash(Integer, Long)}, which give the same values. Every
+ * intermediate value stays below 2^63, so that none of them overflows a {@code BIGINT}.
+ */
+public class ProjectCollectionVersion {
+
+	private static final long FIRST_PRIME = 3037000493L;
+	private static final long SECOND_PRIME = 3037000453L;
+	private static final String FIRST_MIX = "MOD(CAST(project.id AS long) * 1103515245 + COALESCE(project.version, 0) * 69069 + 12345, 3037000493)";
+	private static final String SECOND_MIX = "MOD(CAST(project.id AS long) * 1664525 + COALESCE(project.version, 0) * 1013904223 + 362437, 3037000453)";
+	
+	/**
+	 * Hash of the Project aliased {@code project}, as a query expression
+	 */
+	public static final String FIRST_HASH = "MOD(MOD(" + FIRST_MIX + " * " + FIRST_MIX + ", 3037000493) * " + FIRST_MIX + ", 3037000493)";
+	
+	/**
+	 * Second hash of the Project aliased {@code project}, independent of the first one, as a query expression
+	 */
+	public static final String SECOND_HASH = "MOD(MOD(" + SECOND_MIX + " * " + SECOND_MIX + ", 3037000453) * " + SECOND_MIX + ", 3037000453)";
+	
+	private final long count;
+	private final long firstHashSum;
+	private final long secondHashSum;
+
+	public ProjectCollectionVersion(Long count, Long firstHashSum, Long secondHashSum) {
+		this.count = (count == null) ? 0 : count;
+		this.firstHashSum = (firstHashSum == null) ? 0 : firstHashSum;
+		this.secondHashSum = (secondHashSum == null) ? 0 : secondHashSum;
+	}
+	
+	/**
+	 * @param id Id of a Project
+	 * @param version Version of the Project
+	 * @return Value of {@link #FIRST_HASH} for the Project
+	 */
+	public static long firstHash(Integer id, Long version) {
+		long mix = (id * 1103515245L + ((version == null) ? 0 : version) * 69069L + 12345L) % FIRST_PRIME;
+		return (mix * mix % FIRST_PRIME) * mix % FIRST_PRIME;
+	}
+	
+	/**
+	 * @param id Id of a Project
+	 * @param version Version of the Project
+	 * @return Value of {@link #SECOND_HASH} for the Project
+	 */
+	public static long secondHash(Integer id, Long version) {
+		long mix = (id * 1664525L + ((version == null) ? 0 : version) * 1013904223L + 362437L) % SECOND_PRIME;
+		return (mix * mix % SECOND_PRIME) * mix % SECOND_PRIME;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getFirstHashSum() {
+		return firstHashSum;
+	}
+
+	public long getSecondHashSum() {
+		return secondHashSum;
+	}
+
+	/**
+	 * @return Entity tag of the collection, without the surrounding quotes
+	 */
+	public String toETag() {
+		return "c" + count + "h" + Long.toHexString(firstHashSum) + "-" + Long.toHexString(secondHashSum);
+	}
+
+	@Override
+	public String toString() {
+		return "ProjectCollectionVersion [count=" + count + ", firstHashSum=" + firstHashSum + ", secondHashSum="
+				+ secondHashSum + "]";
+	}
+}
@@ -0,0 +1,33 @@
+package org.lawcubator.assignment.userRegistrationBackend.model;
+
+import java.util.List;
+
+/**
+ * Represents a single page of Projects ordered by their Id
+ * <p>
+ * The {@code next} cursor is an opaque value that has to be sent back to fetch the page following this one.
+ * It is {@code null} if this is the last page.
+ */
+public class ProjectPage {
+
+	private final List<ProjectSummary> projects;
+	private final String next;
+
+	public ProjectPage(List<ProjectSummary> projects, String next) {
+		this.projects = projects;
+		this.next = next;
+	}
+
+	public List<ProjectSummary> getProjects() {
+		return projects;
+	}
+
+	public String getNext() {
+		return next;
+	}
+
+	@Override
+	public String toString() {
+		return "ProjectPage [projects=" + projects + ", next=" + next + "]";
+	}
+}
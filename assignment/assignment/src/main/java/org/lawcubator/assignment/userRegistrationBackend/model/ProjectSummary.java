@@ -0,0 +1,57 @@
+package org.lawcubator.assignment.userRegistrationBackend.model;
+
+/**
+ * Represents the details of a Project that are returned when Projects are read
+ * <p>
+ * It is selected directly by the queries, so neither the Project nor its User are loaded into the
+ * persistence context. Only the username of the owning User is exposed.
+ */
+public final class ProjectSummary {
+
+	private final Integer id;
+	private final String name;
+	private final String description;
+	private final Visibility visibility;
+	private final String ownerUsername;
+	private final Long version;
+
+	public ProjectSummary(Integer id, String name, String description, Visibility visibility, String ownerUsername, 
+			      Long version) {
+		this.id = id;
+		this.name = name;
+		this.description = description;
+		this.visibility = visibility;
+		this.ownerUsername = ownerUsername;
+		this.version = version;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public Visibility getVisibility() {
+		return visibility;
+	}
+
+	public String getOwnerUsername() {
+		return ownerUsername;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	@Override
+	public String toString() {
+		return "ProjectSummary [id=" + id + ", name=" + name + ", description=" + description + ", visibility="
+				+ visibility + ", ownerUsername=" + ownerUsername + ", version=" + version + "]";
+	}
+}
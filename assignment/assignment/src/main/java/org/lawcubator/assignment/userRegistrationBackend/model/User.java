@@ -5,6 +5,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 
 /**
  * Represents User of the application
@@ -13,13 +14,14 @@ import javax.persistence.Id;
 public class User {
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_sequence")
+	@SequenceGenerator(name = "user_sequence", sequenceName = "user_sequence", allocationSize = 50)
 	private Integer id;
 	
 	@Column(nullable = false, unique = true)
 	private String username;
 	
-	@Column(nullable = false, unique = true)
+	@Column(nullable = false)
 	private String password;
 	
 	public User() {
@@ -0,0 +1,51 @@
+package org.lawcubator.assignment.userRegistrationBackend.model;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Represents the outcome of importing a file of Users into the database
+ * <p>
+ * Every row that could not be imported has been written to the rejected rows file along with the reason
+ */
+public class UserImportReport {
+
+	private final long importedUsers;
+	private final long rejectedRows;
+	private final Duration duration;
+	private final Path rejectedRowsFile;
+
+	public UserImportReport(long importedUsers, long rejectedRows, Duration duration, Path rejectedRowsFile) {
+		this.importedUsers = importedUsers;
+		this.rejectedRows = rejectedRows;
+		this.duration = duration;
+		this.rejectedRowsFile = rejectedRowsFile;
+	}
+
+	public long getImportedUsers() {
+		return importedUsers;
+	}
+
+	public long getRejectedRows() {
+		return rejectedRows;
+	}
+
+	public Duration getDuration() {
+		return duration;
+	}
+
+	public Path getRejectedRowsFile() {
+		return rejectedRowsFile;
+	}
+
+	public long getUsersPerSecond() {
+		long millis = Math.max(1, duration.toMillis());
+		return importedUsers * 1000 / millis;
+	}
+
+	@Override
+	public String toString() {
+		return "UserImportReport [importedUsers=" + importedUsers + ", rejectedRows=" + rejectedRows + ", duration="
+				+ duration + ", usersPerSecond=" + getUsersPerSecond() + ", rejectedRowsFile=" + rejectedRowsFile + "]";
+	}
+}
@@ -1,23 +1,107 @@
 package org.lawcubator.assignment.userRegistrationBackend.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 
 import org.lawcubator.assignment.userRegistrationBackend.model.Project;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectCollectionVersion;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
 import org.lawcubator.assignment.userRegistrationBackend.model.User;
+import org.lawcubator.assignment.userRegistrationBackend.model.Visibility;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface ProjectRepository extends JpaRepository<Project, Integer> {
 
-	@Query("SELECT project FROM Project project JOIN FETCH project.user WHERE project.user != :user AND project.visibility = 'PUBLIC'")
-	Set<Project> findAllPublicProjectsOfOtherUsers(@Param("user") User currentUser);
+	@Query("SELECT new org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary(project.id, project.name, project.description, project.visibility, owner.username, project.version) FROM Project project JOIN project.user owner WHERE owner.username != :username AND project.visibility = 'PUBLIC' ORDER BY project.id")
+	List<ProjectSummary> findAllPublicProjectsOfOtherUsers(@Param("username") String currentUsername, Pageable pageable);
+
+	@Query("SELECT new org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary(project.id, project.name, project.description, project.visibility, owner.username, project.version) FROM Project project JOIN project.user owner WHERE owner.username != :username AND project.visibility = 'PUBLIC' AND project.id > :afterId ORDER BY project.id")
+	List<ProjectSummary> findPublicProjectsOfOtherUsersAfter(@Param("username") String currentUsername, @Param("afterId") Integer afterId, Pageable pageable);
+
+	@Query("SELECT new org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary(project.id, project.name, project.description, project.visibility, owner.username, project.version) FROM Project project JOIN project.user owner WHERE project.user = :user ORDER BY project.id")
+	List<ProjectSummary> findProjectsByUser(@Param("user") User user);
+
+	@Query("SELECT new org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary(project.id, project.name, project.description, project.visibility, owner.username, project.version) FROM Project project JOIN project.user owner WHERE project.user = :user AND project.visibility = :visibility ORDER BY project.id")
+	List<ProjectSummary> findProjectsByUserAndVisibility(@Param("user") User user, @Param("visibility") Visibility visibility);
+
+	@Query("SELECT new org.lawcubator.assignment.userRegistrationBackend.model.ProjectCollectionVersion(COUNT(project), SUM(" + ProjectCollectionVersion.FIRST_HASH + "), SUM(" + ProjectCollectionVersion.SECOND_HASH + ")) FROM Project project JOIN project.user owner WHERE owner.username != :username AND project.visibility = 'PUBLIC'")
+	ProjectCollectionVersion findVersionOfPublicProjectsOfOtherUsers(@Param("username") String currentUsername);
+
+	@Query("SELECT new org.lawcubator.assignment.userRegistrationBackend.model.ProjectCollectionVersion(COUNT(project), SUM(" + ProjectCollectionVersion.FIRST_HASH + "), SUM(" + ProjectCollectionVersion.SECOND_HASH + ")) FROM Project project WHERE project.user = :user")
+	ProjectCollectionVersion findVersionOfProjectsByUser(@Param("user") User user);
+
+	@Query("SELECT new org.lawcubator.assignment.userRegistrationBackend.model.ProjectCollectionVersion(COUNT(project), SUM(" + ProjectCollectionVersion.FIRST_HASH + "), SUM(" + ProjectCollectionVersion.SECOND_HASH + ")) FROM Project project WHERE project.user = :user AND project.visibility = :visibility")
+	ProjectCollectionVersion findVersionOfProjectsByUserAndVisibility(@Param("user") User user, @Param("visibility") Visibility visibility);
+
+	@Query("SELECT new org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary(project.id, project.name, project.description, project.visibility, owner.username, project.version) FROM Project project JOIN project.user owner WHERE project.id = :id")
+	ProjectSummary findProjectSummaryById(@Param("id") Integer id);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE Project project SET project.name = :name, project.description = :description, project.visibility = :visibility, project.version = project.version + 1 "
+	       + "WHERE project.id = :id AND (:version IS NULL OR project.version = :version) "
+	       + "AND project.user IN (SELECT owner FROM User owner WHERE owner.id = :ownerId AND owner.username = :ownerUsername)")
+	int updateProjectOfOwner(@Param("id") Integer id, @Param("version") Long version, @Param("ownerId") Integer ownerId, @Param("ownerUsername") String ownerUsername,
+				 @Param("name") String name, @Param("description") String description, @Param("visibility") Visibility visibility);
+
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM Project project WHERE project.id = :id AND project.user IN (SELECT owner FROM User owner WHERE owner.username = :ownerUsername)")
+	int deleteProjectOfOwner(@Param("id") Integer id, @Param("ownerUsername") String ownerUsername);
+
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM Project project WHERE project.id IN :ids AND project.user IN (SELECT owner FROM User owner WHERE owner.username = :ownerUsername)")
+	int deleteProjectsOfOwner(@Param("ids") Collection<Integer> ids, @Param("ownerUsername") String ownerUsername);
+
+	@Query("SELECT project.name FROM Project project WHERE project.name IN :names")
+	Set<String> findExistingNames(@Param("names") Collection<String> names);
+
+	boolean existsByName(String name);
+
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+	@Query("SELECT project.name FROM Project project")
+	Stream<String> streamAllNames();
+
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT project.id FROM Project project WHERE project.id IN :ids AND project.user IN (SELECT owner FROM User owner WHERE owner.username = :ownerUsername)")
+	List<Integer> lockProjectIdsOfOwner(@Param("ids") Collection<Integer> ids, @Param("ownerUsername") String ownerUsername);
+
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+	@Query("SELECT project.id FROM Project project WHERE project.visibility = 'PUBLIC'")
+	Stream<Integer> streamPublicProjectIds();
+
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+	@Query("SELECT new org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary(project.id, project.name, project.description, project.visibility, owner.username, project.version) FROM Project project JOIN project.user owner WHERE owner.username != :username AND project.visibility = 'PUBLIC' ORDER BY project.id")
+	Stream<ProjectSummary> streamPublicProjectsOfOtherUsers(@Param("username") String currentUsername);
+
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+	@Query("SELECT new org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary(project.id, project.name, project.description, project.visibility, owner.username, project.version) FROM Project project JOIN project.user owner WHERE project.visibility = 'PUBLIC' ORDER BY project.id")
+	Stream<ProjectSummary> streamPublicProjects();
+
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+	@Query("SELECT new org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary(project.id, project.name, project.description, project.visibility, owner.username, project.version) FROM Project project JOIN project.user owner WHERE project.user = :user ORDER BY project.id")
+	Stream<ProjectSummary> streamProjectsByUser(@Param("user") User user);
 
-	@Query("SELECT project FROM Project project JOIN FETCH project.user WHERE project.user = :user")
-	Set<Project> findProjectsByUser(@Param("user") User user);
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+	@Query("SELECT new org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary(project.id, project.name, project.description, project.visibility, owner.username, project.version) FROM Project project JOIN project.user owner WHERE project.user = :user AND project.visibility = :visibility ORDER BY project.id")
+	Stream<ProjectSummary> streamProjectsByUserAndVisibility(@Param("user") User user, @Param("visibility") Visibility visibility);
 
-	@Query("SELECT project FROM Project project JOIN FETCH project.user WHERE project.id = :id")
-	Project findProjectById(@Param("id") Integer id); 
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+	@Query("SELECT new org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary(project.id, project.name, project.description, project.visibility, owner.username, project.version) FROM Project project JOIN project.user owner")
+	Stream<ProjectSummary> streamAllProjects();
 }
@@ -1,12 +1,36 @@
 package org.lawcubator.assignment.userRegistrationBackend.repository;
 
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
 import org.lawcubator.assignment.userRegistrationBackend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer> {
 
 	User findByUsername(String username);
-	User findByUsernameAndPassword(String username, String password);
+
+	@Query("SELECT user.username FROM User user WHERE user.username IN :usernames")
+	Set<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+	boolean existsByUsername(String username);
+
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+	@Query("SELECT user.username FROM User user")
+	Stream<String> streamAllUsernames();
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE User user SET user.password = :password WHERE user.username = :username")
+	int updatePassword(@Param("username") String username, @Param("password") String password);
 }
@@ -0,0 +1,234 @@
+package org.lawcubator.assignment.userRegistrationBackend.search;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.lawcubator.assignment.userRegistrationBackend.model.Visibility;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * In-memory index of Project names, ordered for prefix lookups
+ * <p>
+ * Names are kept lower cased in sorted maps, so the names starting with a prefix are the ones following it, and
+ * looking them up costs a single descent of the map followed by reading the results. {@code Public} Projects
+ * share one map, while the {@code Private} Projects of every User are kept in a map of their own, so that a
+ * lookup only ever goes through the Projects the User is allowed to see.
+ * <p>
+ * The index can be read while it is being updated, readers never block. Like the {@link ProjectSearchIndex},
+ * updates of a single Project are applied in order of its version, and Projects deleted in the last
+ * {@value #REMOVED_PROJECTS_EXPIRY_MINUTES} minutes are not added back by late updates.
+ */
+public final class ProjectNameIndex {
+
+	private static final long REMOVED_PROJECTS_EXPIRY_MINUTES = 10;
+	// Sorts before any character of a name, so that names are ordered before the names they are a prefix of
+	private static final char ID_SEPARATOR = '\u0000';
+	
+	private final Map<Integer, ProjectEntry> projects = new ConcurrentHashMap<>();
+	private final NavigableMap<String, IndexedName> publicNames = new ConcurrentSkipListMap<>();
+	private final Map<String, NavigableMap<String, IndexedName>> privateNames = new ConcurrentHashMap<>();
+	private final Cache<Integer, String> removedProjects = Caffeine.newBuilder()
+								       .expireAfterWrite(Duration.ofMinutes(REMOVED_PROJECTS_EXPIRY_MINUTES))
+								       .build();
+	
+	/**
+	 * Adds a Project to the index, or replaces its previous version
+	 * 
+	 * @param project Details of the Project, ignored if the index already holds the same or a newer version of
+	 * the Project, or if the Project has been deleted
+	 */
+	public void put(ProjectSummary project) {
+		projects.compute(project.getId(), (id, entry) -> {
+			IndexedName previous = (entry == null) ? null : entry.current;
+			
+			if (previous != null && version(previous.project) >= version(project)) {
+				return entry;
+			}
+			
+			if (project.getOwnerUsername().equals(removedProjects.getIfPresent(id))) {
+				return entry;
+			}
+			
+			ProjectEntry updated = (entry == null) ? new ProjectEntry() : entry;
+			IndexedName indexed = new IndexedName(updated, project);
+			
+			// Added before it becomes current and the previous name removed after, so readers always find one of both
+			namesOf(project).put(indexed.key, indexed);
+			updated.current = indexed;
+			
+			if (previous != null && !previous.isSameName(indexed)) {
+				namesOf(previous.project).remove(previous.key, previous);
+			}
+			
+			return updated;
+		});
+	}
+	
+	/**
+	 * Removes a Project from the index
+	 * 
+	 * @param id Id of the deleted Project
+	 * @param ownerUsername User who owned the Project, the Project is only removed if it matches
+	 */
+	public void remove(Integer id, String ownerUsername) {
+		// Remembered first, so that a version of the Project added after this point is ignored
+		removedProjects.put(id, ownerUsername);
+		
+		projects.computeIfPresent(id, (key, entry) -> {
+			IndexedName previous = entry.current;
+			
+			if (!previous.project.getOwnerUsername().equals(ownerUsername)) {
+				return entry;
+			}
+			
+			entry.current = null;
+			namesOf(previous.project).remove(previous.key, previous);
+			return null;
+		});
+	}
+	
+	/**
+	 * Finds the Projects whose name starts with a prefix that are visible to a User
+	 * <p>
+	 * Visible Projects are the {@code Public} ones and the ones owned by the User.
+	 * 
+	 * @param prefix Start of the names to look for, matched regardless of case
+	 * @param currentUsername User who is looking the names up
+	 * @param maximumResults Maximum number of Projects to return
+	 * @return Matching Projects, ordered by name regardless of case
+	 */
+	public List<ProjectSummary> suggest(String prefix, String currentUsername, int maximumResults) {
+		String normalizedPrefix = normalize(prefix);
+		NavigableMap<String, IndexedName> ownNames = privateNames.get(currentUsername);
+		Iterator<IndexedName> publicMatches = publicNames.tailMap(normalizedPrefix).values().iterator();
+		Iterator<IndexedName> privateMatches = (ownNames == null) ? Collections.emptyIterator()
+									  : ownNames.tailMap(normalizedPrefix).values().iterator();
+		
+		List<ProjectSummary> results = new ArrayList<>(Math.min(maximumResults, 16));
+		IndexedName nextPublic = nextMatch(publicMatches, normalizedPrefix);
+		IndexedName nextPrivate = nextMatch(privateMatches, normalizedPrefix);
+		
+		// Both maps are in the same order, so their matches are merged as they are read
+		while (results.size() < maximumResults && (nextPublic != null || nextPrivate != null)) {
+			IndexedName next;
+			
+			if (nextPrivate == null || (nextPublic != null && nextPublic.key.compareTo(nextPrivate.key) <= 0)) {
+				next = nextPublic;
+				nextPublic = nextMatch(publicMatches, normalizedPrefix);
+			} else {
+				next = nextPrivate;
+				nextPrivate = nextMatch(privateMatches, normalizedPrefix);
+			}
+			
+			// A Project renamed while the maps are being read may be found under both of its names
+			if (!containsId(results, next.project.getId())) {
+				results.add(next.project);
+			}
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * @return Number of Projects in the index
+	 */
+	public int size() {
+		return projects.size();
+	}
+	
+	private NavigableMap<String, IndexedName> namesOf(ProjectSummary project) {
+		if (project.getVisibility() != Visibility.PRIVATE) {
+			return publicNames;
+		}
+		
+		return privateNames.computeIfAbsent(project.getOwnerUsername(), owner -> new ConcurrentSkipListMap<>());
+	}
+	
+	/**
+	 * @return Current version of the next Project of the iterator whose name starts with the prefix, or null if
+	 * there is none
+	 */
+	private static IndexedName nextMatch(Iterator<IndexedName> names, String normalizedPrefix) {
+		while (names.hasNext()) {
+			IndexedName name = names.next();
+			
+			if (!name.key.startsWith(normalizedPrefix)) {
+				return null;
+			}
+			
+			IndexedName current = name.entry.current;
+			
+			// Names the Project no longer has are skipped, they are about to be removed
+			if (current != null && current.isSameName(name)) {
+				return current;
+			}
+		}
+		
+		return null;
+	}
+	
+	private static boolean containsId(List<ProjectSummary> projects, Integer id) {
+		for (ProjectSummary project : projects) {
+			if (project.getId().equals(id)) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	private static String normalize(String name) {
+		return name.toLowerCase(Locale.ROOT);
+	}
+	
+	private static long version(ProjectSummary project) {
+		return (project.getVersion() == null) ? -1 : project.getVersion();
+	}
+	
+	/**
+	 * Project as found in the index, which is replaced whenever the Project is updated
+	 */
+	private static final class ProjectEntry {
+		
+		// Null once the Project has been removed
+		private volatile IndexedName current;
+	}
+	
+	/**
+	 * Name of a version of a Project, keyed by the lower cased name followed by the Id of the Project
+	 * <p>
+	 * A version that only changed the description replaces the previous one under the same key.
+	 */
+	private static final class IndexedName {
+		
+		private final ProjectEntry entry;
+		private final ProjectSummary project;
+		private final String key;
+		private final boolean publicProject;
+		
+		private IndexedName(ProjectEntry entry, ProjectSummary project) {
+			this.entry = entry;
+			this.project = project;
+			this.key = normalize(project.getName()) + ID_SEPARATOR + project.getId();
+			this.publicProject = project.getVisibility() != Visibility.PRIVATE;
+		}
+		
+		/**
+		 * @return Whether both versions of the Project are held under the same key of the same map
+		 */
+		private boolean isSameName(IndexedName other) {
+			return publicProject == other.publicProject && key.equals(other.key);
+		}
+	}
+}
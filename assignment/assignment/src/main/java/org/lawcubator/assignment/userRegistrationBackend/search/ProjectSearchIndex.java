@@ -0,0 +1,487 @@
+package org.lawcubator.assignment.userRegistrationBackend.search;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.lawcubator.assignment.userRegistrationBackend.model.Visibility;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * In-memory inverted index of the words of Project names and descriptions
+ * <p>
+ * Every word is mapped to the Projects containing it. Words are the runs of letters and digits of the text,
+ * lower cased. A query matches the Projects containing all of its words, and is answered by going through the
+ * Projects of its rarest word only, so its cost depends on how selective the query is rather than on the number
+ * of Projects indexed. Going through them stops as soon as none of the remaining ones can make it into the
+ * results anymore, which keeps queries of words that nearly every Project contains cheap as well.
+ * <p>
+ * Matches are ranked with BM25: words found in the name count {@value #NAME_WEIGHT} times as much as words found
+ * in the description, rare words count more than common ones, and repeating a word adds less and less.
+ * <p>
+ * The index can be read while it is being updated, readers never block. Updates of a single Project are
+ * applied in order of its version, so that an older version never replaces a newer one, and Projects deleted
+ * in the last {@value #REMOVED_PROJECTS_EXPIRY_MINUTES} minutes are not added back by late updates.
+ */
+public final class ProjectSearchIndex {
+
+	private static final int NAME_WEIGHT = 3;
+	private static final int DESCRIPTION_WEIGHT = 1;
+	private static final double SATURATION = 1.2;
+	private static final int MINIMUM_STALE_ENTRIES_TO_COMPACT = 16;
+	private static final long REMOVED_PROJECTS_EXPIRY_MINUTES = 10;
+	private static final Comparator<Match> WORST_MATCH_FIRST = Comparator.comparingDouble((Match match) -> match.score)
+									   .thenComparing(match -> match.project.getId(), Comparator.reverseOrder());
+	
+	private final Map<Integer, ProjectEntry> projects = new ConcurrentHashMap<>();
+	private final Map<String, PostingList> postingLists = new ConcurrentHashMap<>();
+	private final Cache<Integer, String> removedProjects = Caffeine.newBuilder()
+								       .expireAfterWrite(Duration.ofMinutes(REMOVED_PROJECTS_EXPIRY_MINUTES))
+								       .build();
+	
+	/**
+	 * Adds a Project to the index, or replaces its previous version
+	 * 
+	 * @param project Details of the Project, ignored if the index already holds the same or a newer version of
+	 * the Project, or if the Project has been deleted
+	 */
+	public void put(ProjectSummary project) {
+		projects.compute(project.getId(), (id, entry) -> {
+			IndexedProject previous = (entry == null) ? null : entry.current;
+			
+			if (previous != null && version(previous.project) >= version(project)) {
+				return entry;
+			}
+			
+			if (project.getOwnerUsername().equals(removedProjects.getIfPresent(id))) {
+				return entry;
+			}
+			
+			ProjectEntry updated = (entry == null) ? new ProjectEntry(id) : entry;
+			IndexedProject indexed = new IndexedProject(project, weighWords(project));
+			// Replaced first, so that compacting the posting list of a word the Project lost leaves the Project out
+			updated.current = indexed;
+			updatePostingLists(updated, previous, indexed);
+			return updated;
+		});
+	}
+	
+	/**
+	 * Removes a Project from the index
+	 * 
+	 * @param id Id of the deleted Project
+	 * @param ownerUsername User who owned the Project, the Project is only removed if it matches
+	 */
+	public void remove(Integer id, String ownerUsername) {
+		// Remembered first, so that a version of the Project added after this point is ignored
+		removedProjects.put(id, ownerUsername);
+		
+		projects.computeIfPresent(id, (key, entry) -> {
+			IndexedProject previous = entry.current;
+			
+			if (!previous.project.getOwnerUsername().equals(ownerUsername)) {
+				return entry;
+			}
+			
+			entry.current = null;
+			updatePostingLists(entry, previous, null);
+			return null;
+		});
+	}
+	
+	/**
+	 * Finds the Projects containing every word of the query that are visible to a User, best matches first
+	 * <p>
+	 * Visible Projects are the {@code Public} ones and the ones owned by the User.
+	 * 
+	 * @param query Words to look for
+	 * @param currentUsername User who is searching
+	 * @param maximumResults Maximum number of Projects to return
+	 * @return Matching Projects, ordered by decreasing relevance and then by Id
+	 * @throws IllegalArgumentException if the query had no letter or digit
+	 */
+	public List<ProjectSummary> search(String query, String currentUsername, int maximumResults) {
+		Set<String> words = tokenize(query).keySet();
+		
+		if (words.isEmpty()) {
+			throw new IllegalArgumentException("Search query must contain at least one letter or digit");
+		}
+		
+		PostingList[] queryLists = new PostingList[words.size()];
+		int index = 0;
+		
+		for (String word : words) {
+			PostingList postingList = postingLists.get(word);
+			
+			if (postingList == null) {
+				return List.of();
+			}
+			
+			queryLists[index++] = postingList;
+		}
+		
+		// Only the Projects of the rarest word can match, the other words are looked up in the words of every candidate
+		Arrays.sort(queryLists, Comparator.comparingInt(PostingList::size));
+		double[] inverseFrequencies = new double[queryLists.length];
+		double maximumScore = 0;
+		int indexedProjects = Math.max(1, projects.size());
+		
+		for (int i = 0; i < queryLists.length; i++) {
+			double frequency = Math.min(queryLists[i].size(), indexedProjects);
+			inverseFrequencies[i] = Math.log(1 + (indexedProjects - frequency + 0.5) / (frequency + 0.5));
+			maximumScore += inverseFrequencies[i] * saturate(queryLists[i].maximumWeight);
+		}
+		
+		PostingSnapshot candidates = queryLists[0].snapshot;
+		PriorityQueue<Match> matches = new PriorityQueue<>(maximumResults + 1, WORST_MATCH_FIRST);
+		Set<Integer> scoredIds = candidates.sorted ? null : new HashSet<>();
+		
+		for (int i = 0; i < candidates.size; i++) {
+			Match worstMatch = (matches.size() < maximumResults) ? null : matches.peek();
+			
+			// Candidates of a sorted list come by increasing Id, so the ones left lose ties against the worst match
+			if (worstMatch != null && candidates.sorted && worstMatch.score >= maximumScore) {
+				break;
+			}
+			
+			IndexedProject candidate = candidates.entries[i].current;
+			
+			if (candidate == null || !candidate.isVisible(currentUsername)) {
+				continue;
+			}
+			
+			double score = candidate.score(queryLists, inverseFrequencies);
+			
+			if (score == 0 || (worstMatch != null && candidates.sorted && worstMatch.score >= score)) {
+				continue;
+			}
+			
+			if (scoredIds != null && !scoredIds.add(candidate.project.getId())) {
+				continue;
+			}
+			
+			matches.add(new Match(candidate.project, score));
+			
+			if (matches.size() > maximumResults) {
+				matches.poll();
+			}
+		}
+		
+		ProjectSummary[] results = new ProjectSummary[matches.size()];
+		
+		for (int i = results.length - 1; i >= 0; i--) {
+			results[i] = matches.poll().project;
+		}
+		
+		return List.of(results);
+	}
+	
+	/**
+	 * @return Number of Projects in the index
+	 */
+	public int size() {
+		return projects.size();
+	}
+	
+	private static long version(ProjectSummary project) {
+		return (project.getVersion() == null) ? -1 : project.getVersion();
+	}
+	
+	/**
+	 * @return Share of the score of a word for its weight in a Project, which levels off as the weight grows
+	 */
+	private static double saturate(int weight) {
+		return weight * (SATURATION + 1) / (weight + SATURATION);
+	}
+	
+	private static Map<String, Integer> weighWords(ProjectSummary project) {
+		Map<String, Integer> weights = tokenize(project.getName());
+		
+		for (Map.Entry<String, Integer> word : weights.entrySet()) {
+			word.setValue(word.getValue() * NAME_WEIGHT);
+		}
+		
+		for (Map.Entry<String, Integer> word : tokenize(project.getDescription()).entrySet()) {
+			weights.merge(word.getKey(), word.getValue() * DESCRIPTION_WEIGHT, Integer::sum);
+		}
+		
+		return weights;
+	}
+	
+	/**
+	 * Splits a text into lower cased runs of letters and digits
+	 * 
+	 * @return Number of occurrences of every word, in the order the words first occur
+	 */
+	private static Map<String, Integer> tokenize(String text) {
+		Map<String, Integer> words = new LinkedHashMap<>();
+		
+		if (text == null) {
+			return words;
+		}
+		
+		int start = -1;
+		
+		for (int i = 0; i <= text.length(); i++) {
+			boolean wordCharacter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			
+			if (wordCharacter && start < 0) {
+				start = i;
+			} else if (!wordCharacter && start >= 0) {
+				words.merge(text.substring(start, i).toLowerCase(Locale.ROOT), 1, Integer::sum);
+				start = -1;
+			}
+		}
+		
+		return words;
+	}
+	
+	/**
+	 * Adds the Project to the posting lists of the words it gained, and marks it as stale in the posting lists
+	 * of the words it lost
+	 * <p>
+	 * Words of the Project are replaced by the instances the posting lists are keyed by, so that a word is only
+	 * held once in memory however many Projects contain it.
+	 */
+	private void updatePostingLists(ProjectEntry entry, IndexedProject previous, IndexedProject current) {
+		if (current != null) {
+			for (int i = 0; i < current.words.length; i++) {
+				int previousIndex = (previous == null) ? -1 : previous.indexOf(current.words[i]);
+				int weight = current.weights[i];
+				
+				if (previousIndex >= 0 && previous.weights[previousIndex] >= weight) {
+					current.words[i] = previous.words[previousIndex];
+					continue;
+				}
+				
+				current.words[i] = postingLists.compute(current.words[i], (word, postingList) -> {
+					if (postingList == null || previousIndex < 0) {
+						PostingList updated = (postingList == null) ? new PostingList(word) : postingList;
+						updated.add(entry, weight);
+						return updated;
+					}
+					
+					// Already listed, only the weight of the word has grown
+					postingList.maximumWeight = Math.max(postingList.maximumWeight, weight);
+					return postingList;
+				}).word;
+			}
+		}
+		
+		if (previous != null) {
+			for (String word : previous.words) {
+				if (current == null || current.indexOf(word) < 0) {
+					// Posting lists left empty are dropped, so that words nobody uses anymore do not pile up
+					postingLists.computeIfPresent(word, (key, postingList) -> postingList.markStale() ? postingList : null);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Project held by the index, along with the weight of every word it contains
+	 * <p>
+	 * Words are ordered by their hash codes, which are searched without reading any of the words themselves.
+	 */
+	private static final class IndexedProject {
+		
+		private final ProjectSummary project;
+		private final boolean publicProject;
+		private final String[] words;
+		private final int[] hashCodes;
+		private final int[] weights;
+		
+		private IndexedProject(ProjectSummary project, Map<String, Integer> wordWeights) {
+			this.project = project;
+			this.publicProject = project.getVisibility() != Visibility.PRIVATE;
+			this.words = wordWeights.keySet().toArray(new String[0]);
+			Arrays.sort(words, Comparator.comparingInt(String::hashCode));
+			this.hashCodes = new int[words.length];
+			this.weights = new int[words.length];
+			
+			for (int i = 0; i < words.length; i++) {
+				hashCodes[i] = words[i].hashCode();
+				weights[i] = wordWeights.get(words[i]);
+			}
+		}
+		
+		private boolean isVisible(String currentUsername) {
+			return publicProject || project.getOwnerUsername().equals(currentUsername);
+		}
+		
+		/**
+		 * @return Index of the word in the Project, or a negative number if the Project does not contain it
+		 */
+		private int indexOf(String word) {
+			int hashCode = word.hashCode();
+			int index = Arrays.binarySearch(hashCodes, hashCode);
+			
+			if (index < 0) {
+				return -1;
+			}
+			
+			// Words sharing the hash code are next to each other
+			while (index > 0 && hashCodes[index - 1] == hashCode) {
+				index--;
+			}
+			
+			for (; index < words.length && hashCodes[index] == hashCode; index++) {
+				if (words[index].equals(word)) {
+					return index;
+				}
+			}
+			
+			return -1;
+		}
+		
+		/**
+		 * @return BM25 score of the Project, or 0 if it lacks any of the words
+		 */
+		private double score(PostingList[] queryLists, double[] inverseFrequencies) {
+			double score = 0;
+			
+			for (int i = 0; i < queryLists.length; i++) {
+				int index = indexOf(queryLists[i].word);
+				
+				if (index < 0) {
+					return 0;
+				}
+				
+				score += inverseFrequencies[i] * saturate(weights[index]);
+			}
+			
+			return score;
+		}
+	}
+	
+	/**
+	 * Project of a given Id, which the posting lists refer to across its versions
+	 */
+	private static final class ProjectEntry {
+		
+		private final int id;
+		// Null once the Project has been removed
+		private volatile IndexedProject current;
+		
+		private ProjectEntry(int id) {
+			this.id = id;
+		}
+	}
+	
+	/**
+	 * Projects containing a word
+	 * <p>
+	 * Only ever modified under the lock of its entry in the posting lists, and read through its current snapshot
+	 * without any lock. Projects that lost the word are left in place and skipped by the queries until they make
+	 * up half of the list, at which point it is compacted.
+	 */
+	private final class PostingList {
+		
+		private final String word;
+		private volatile PostingSnapshot snapshot = new PostingSnapshot(new ProjectEntry[4], 0, true);
+		// Highest weight of the word in any Project of the list, only ever lowered by compacting the list
+		private volatile int maximumWeight;
+		private int staleEntries;
+		
+		private PostingList(String word) {
+			this.word = word;
+		}
+		
+		private int size() {
+			return snapshot.size;
+		}
+		
+		private void add(ProjectEntry entry, int weight) {
+			PostingSnapshot current = snapshot;
+			ProjectEntry[] entries = current.entries;
+			
+			if (current.size == entries.length) {
+				entries = Arrays.copyOf(entries, entries.length * 2);
+			}
+			
+			// Written before the snapshot is published, readers of the previous snapshot never look that far
+			entries[current.size] = entry;
+			boolean sorted = current.sorted && (current.size == 0 || entries[current.size - 1].id < entry.id);
+			maximumWeight = Math.max(maximumWeight, weight);
+			snapshot = new PostingSnapshot(entries, current.size + 1, sorted);
+		}
+		
+		/**
+		 * @return Whether the list still holds any Project
+		 */
+		private boolean markStale() {
+			staleEntries++;
+			
+			if ((staleEntries >= MINIMUM_STALE_ENTRIES_TO_COMPACT && staleEntries * 2 >= snapshot.size) || staleEntries == snapshot.size) {
+				compact();
+			}
+			
+			return snapshot.size > 0;
+		}
+		
+		private void compact() {
+			PostingSnapshot current = snapshot;
+			ProjectEntry[] entries = Arrays.copyOf(current.entries, current.size);
+			Arrays.sort(entries, Comparator.comparingInt((ProjectEntry entry) -> entry.id));
+			int size = 0;
+			int weight = 0;
+			
+			for (ProjectEntry entry : entries) {
+				IndexedProject project = entry.current;
+				int index = (project == null) ? -1 : project.indexOf(word);
+				boolean duplicate = size > 0 && entries[size - 1] == entry;
+				
+				if (index >= 0 && !duplicate) {
+					entries[size++] = entry;
+					weight = Math.max(weight, project.weights[index]);
+				}
+			}
+			
+			snapshot = new PostingSnapshot(Arrays.copyOf(entries, Math.max(4, size)), size, true);
+			maximumWeight = weight;
+			staleEntries = 0;
+		}
+	}
+	
+	/**
+	 * State of a posting list at a point in time
+	 */
+	private static final class PostingSnapshot {
+		
+		private final ProjectEntry[] entries;
+		private final int size;
+		// Whether the Projects are ordered by increasing Id, without duplicates
+		private final boolean sorted;
+		
+		private PostingSnapshot(ProjectEntry[] entries, int size, boolean sorted) {
+			this.entries = entries;
+			this.size = size;
+			this.sorted = sorted;
+		}
+	}
+	
+	/**
+	 * Project matching a query, along with its score
+	 */
+	private static final class Match {
+		
+		private final ProjectSummary project;
+		private final double score;
+		
+		private Match(ProjectSummary project, double score) {
+			this.project = project;
+			this.score = score;
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package org.lawcubator.assignment.userRegistrationBackend.search;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.lawcubator.assignment.userRegistrationBackend.repository.ProjectRepository;
+import org.lawcubator.assignment.userRegistrationBackend.service.ProjectChangeEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Service Implementation that searches the names and descriptions of Projects
+ * <p>
+ * Searches are served from a {@link ProjectSearchIndex}, and name suggestions from a {@link ProjectNameIndex},
+ * without touching the database. Both indexes are built once the application is ready, on a thread of their
+ * own, from a single streamed scan of every Project, and are then kept up to date with every
+ * {@link ProjectChangeEvent}. Changes made while the indexes are being built are applied along with the scan,
+ * the versions of the Projects tell which of both is the latest.
+ */
+@Service
+public class ProjectSearchService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProjectSearchService.class);
+	
+	private final ProjectRepository projectRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final ProjectSearchIndex searchIndex = new ProjectSearchIndex();
+	private final ProjectNameIndex nameIndex = new ProjectNameIndex();
+	private final int maximumResults;
+	private volatile boolean built;
+	
+	@Autowired
+	public ProjectSearchService(ProjectRepository projectRepository,
+				    PlatformTransactionManager transactionManager,
+				    MeterRegistry meterRegistry,
+				    @Value("${project.search.max-results:100}") int maximumResults) {
+		this.projectRepository = projectRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+		this.maximumResults = maximumResults;
+		
+		Gauge.builder("project.search.indexed", searchIndex, ProjectSearchIndex::size)
+		     .description("Projects held by the search index")
+		     .register(meterRegistry);
+	}
+	
+	/**
+	 * Finds the Projects whose name or description contain every word of the query, best matches first
+	 * <p>
+	 * Only {@code Public} Projects and the Projects of the User searching are found.
+	 * 
+	 * @param query Words to look for, matched regardless of case
+	 * @param currentUsername User who is searching
+	 * @param limit Maximum number of Projects to return, capped at {@code project.search.max-results}
+	 * @return Matching Projects, ordered by decreasing relevance and then by Id
+	 * @throws IllegalArgumentException if the query had no words or the limit was not positive
+	 * @throws RejectedExecutionException if the index was still being built
+	 */
+	@Timed("service.calls")
+	public List<ProjectSummary> searchProjects(String query, String currentUsername, int limit) {
+		if (query == null || query.trim().isEmpty()) {
+			throw new IllegalArgumentException("Search query cannot be null or empty");
+		}
+		
+		if (limit < 1) {
+			throw new IllegalArgumentException("Limit must be greater than zero");
+		}
+		
+		if (!built) {
+			throw new RejectedExecutionException("Search index is still being built");
+		}
+		
+		return searchIndex.search(query, currentUsername, Math.min(limit, maximumResults));
+	}
+	
+	/**
+	 * Finds the Projects whose name starts with a prefix, to be suggested while the name is being typed
+	 * <p>
+	 * Only {@code Public} Projects and the Projects of the User typing are suggested.
+	 * 
+	 * @param prefix Start of the names to look for, matched regardless of case
+	 * @param currentUsername User who is typing
+	 * @param limit Maximum number of Projects to return, capped at {@code project.search.max-results}
+	 * @return Matching Projects, ordered by name regardless of case
+	 * @throws IllegalArgumentException if the prefix was empty or the limit was not positive
+	 * @throws RejectedExecutionException if the index was still being built
+	 */
+	@Timed("service.calls")
+	public List<ProjectSummary> suggestProjects(String prefix, String currentUsername, int limit) {
+		if (prefix == null || prefix.isEmpty()) {
+			throw new IllegalArgumentException("Prefix cannot be null or empty");
+		}
+		
+		if (limit < 1) {
+			throw new IllegalArgumentException("Limit must be greater than zero");
+		}
+		
+		if (!built) {
+			throw new RejectedExecutionException("Search index is still being built");
+		}
+		
+		return nameIndex.suggest(prefix, currentUsername, Math.min(limit, maximumResults));
+	}
+	
+	/**
+	 * Applies a change made to a Project to the indexes, once its transaction has been committed
+	 * 
+	 * @param event Change made to the Project
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onProjectChange(ProjectChangeEvent event) {
+		if (event.getType() == ProjectChangeEvent.Type.SAVED) {
+			searchIndex.put(event.getProject());
+			nameIndex.put(event.getProject());
+		} else {
+			searchIndex.remove(event.getProjectId(), event.getOwnerUsername());
+			nameIndex.remove(event.getProjectId(), event.getOwnerUsername());
+		}
+	}
+	
+	/**
+	 * Starts building the indexes once the application is ready, so that the scan does not delay the startup
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void buildIndex() {
+		Thread indexer = new Thread(this::scanProjects, "project-search-indexer");
+		indexer.setDaemon(true);
+		indexer.start();
+	}
+	
+	private void scanProjects() {
+		long startTime = System.nanoTime();
+		
+		try {
+			// Streaming queries need a transaction that keeps the connection open until the last row has been read
+			transactionTemplate.executeWithoutResult(status -> {
+				try (Stream<ProjectSummary> projects = projectRepository.streamAllProjects()) {
+					projects.forEach(project -> {
+						searchIndex.put(project);
+						nameIndex.put(project);
+					});
+				}
+			});
+		} catch (RuntimeException ex) {
+			LOGGER.error("Search index could not be built, searches will keep being rejected", ex);
+			return;
+		}
+		
+		built = true;
+		LOGGER.info("Search index built with {} projects in {} ms", searchIndex.size(),
+			    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+	}
+}
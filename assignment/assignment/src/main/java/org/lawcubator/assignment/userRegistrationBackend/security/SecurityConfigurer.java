@@ -1,6 +1,7 @@
 package org.lawcubator.assignment.userRegistrationBackend.security;
 
 import org.lawcubator.assignment.userRegistrationBackend.security.filter.JWTRequestFilter;
+import org.lawcubator.assignment.userRegistrationBackend.security.filter.RateLimitFilter;
 import org.lawcubator.assignment.userRegistrationBackend.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -10,8 +11,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.password.NoOpPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @EnableWebSecurity
@@ -19,11 +18,13 @@ public class SecurityConfigurer extends WebSecurityConfigurerAdapter {
 	
 	private final UserService userService;
 	private final JWTRequestFilter jwtRequestFilter;
+	private final RateLimitFilter rateLimitFilter;
 
 	@Autowired
-	public SecurityConfigurer(UserService userService, JWTRequestFilter jwtRequestFilter) {
+	public SecurityConfigurer(UserService userService, JWTRequestFilter jwtRequestFilter, RateLimitFilter rateLimitFilter) {
 		this.userService = userService;
 		this.jwtRequestFilter = jwtRequestFilter;
+		this.rateLimitFilter = rateLimitFilter;
 	}
 
 	@Override
@@ -37,15 +38,13 @@ public class SecurityConfigurer extends WebSecurityConfigurerAdapter {
 			.authorizeRequests()
 			.antMatchers("/userApi/v1/signup").permitAll()
 			.antMatchers("/userApi/v1/login").permitAll()
+			.antMatchers("/actuator/health").permitAll()
 			.anyRequest().authenticated()
 			.and()
 			.sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
 		http.addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class);
-	}
-	
-	@Bean
-	public PasswordEncoder passwordEncoder() {
-		return NoOpPasswordEncoder.getInstance();
+		// Runs once the User of the request is known, so that Users are limited by their username rather than their IP
+		http.addFilterAfter(rateLimitFilter, JWTRequestFilter.class);
 	}
 	
 	@Override
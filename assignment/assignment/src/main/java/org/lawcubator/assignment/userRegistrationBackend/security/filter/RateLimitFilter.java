@@ -0,0 +1,218 @@
+package org.lawcubator.assignment.userRegistrationBackend.security.filter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Custom filter that limits the rate of requests of every User, and of every IP address for the requests 
+ * made without a JSON Web Token, such as {@code signup} and {@code login}.
+ * <p>
+ * It runs right after {@link JWTRequestFilter}, once the User of the request is known. Every User and every 
+ * IP address has a token bucket, refilled at a steady rate up to its capacity, and every request takes the cost
+ * of its endpoint out of it. Endpoints scanning many Projects cost more than the others. A request finding its
+ * bucket short of tokens is rejected with {@code 429 Too Many Requests} and a {@code Retry-After} header telling
+ * when enough tokens will be back.
+ * <p>
+ * Buckets are a single atomic value updated without locks, and are kept in a bounded cache that drops 
+ * the ones left idle, so that the number of clients seen does not grow the memory used.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+	private static final String TOO_MANY_REQUESTS_MESSAGE = "Too many requests have been made. Try again later.";
+	private static final String USER_KEY_PREFIX = "user:";
+	private static final String IP_KEY_PREFIX = "ip:";
+	
+	private final boolean enabled;
+	private final BucketSettings userSettings;
+	private final BucketSettings ipSettings;
+	private final Map<String, Integer> endpointCosts;
+	private final Cache<String, TokenBucket> buckets;
+	private final Counter userRejections;
+	private final Counter ipRejections;
+	
+	@Autowired
+	public RateLimitFilter(MeterRegistry meterRegistry,
+			       @Value("${rate-limit.enabled:true}") boolean enabled,
+			       @Value("${rate-limit.user.capacity:100}") int userCapacity,
+			       @Value("${rate-limit.user.refill-per-second:50}") double userRefillPerSecond,
+			       @Value("${rate-limit.ip.capacity:20}") int ipCapacity,
+			       @Value("${rate-limit.ip.refill-per-second:5}") double ipRefillPerSecond,
+			       @Value("${rate-limit.costs:other-projects/all=10,other-projects/export=20,projects/export=10,project/batch=10}") String endpointCosts,
+			       @Value("${rate-limit.maximum-buckets:100000}") long maximumBuckets,
+			       @Value("${rate-limit.idle-expiry:10m}") Duration idleExpiry) {
+		this.enabled = enabled;
+		this.userSettings = new BucketSettings(userCapacity, userRefillPerSecond);
+		this.ipSettings = new BucketSettings(ipCapacity, ipRefillPerSecond);
+		this.endpointCosts = parseCosts(endpointCosts);
+		this.buckets = Caffeine.newBuilder()
+				       .maximumSize(maximumBuckets)
+				       .expireAfterAccess(idleExpiry)
+				       .build();
+		this.userRejections = rejectionCounter(meterRegistry, "user");
+		this.ipRejections = rejectionCounter(meterRegistry, "ip");
+	}
+	
+	private static Counter rejectionCounter(MeterRegistry meterRegistry, String key) {
+		return Counter.builder("rate-limit.rejections")
+			      .description("Requests rejected for exceeding their rate limit")
+			      .tag("key", key)
+			      .register(meterRegistry);
+	}
+	
+	/**
+	 * Parses endpoint costs given as {@code path=cost} pairs separated by commas, where the path is relative to 
+	 * the API, e.g. {@code other-projects/all=10}
+	 */
+	private static Map<String, Integer> parseCosts(String value) {
+		Map<String, Integer> costs = new LinkedHashMap<>();
+		
+		for (String entry : value.split(",")) {
+			if (entry.isBlank()) {
+				continue;
+			}
+			
+			String[] cost = entry.trim().split("=");
+			
+			if (cost.length != 2) {
+				throw new IllegalArgumentException("Rate limit cost " + entry + " is not of the form path=cost");
+			}
+			
+			costs.put("/" + cost[0].trim(), Integer.parseInt(cost[1].trim()));
+		}
+		
+		return costs;
+	}
+	
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+		if (!enabled) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+		
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		boolean authenticated = authentication != null && authentication.isAuthenticated();
+		
+		String key = authenticated ? USER_KEY_PREFIX + authentication.getName() : IP_KEY_PREFIX + request.getRemoteAddr();
+		BucketSettings settings = authenticated ? userSettings : ipSettings;
+		TokenBucket bucket = buckets.get(key, k -> new TokenBucket(settings));
+		
+		long retryAfterNanos = bucket.tryConsume(cost(request), System.nanoTime());
+		
+		if (retryAfterNanos > 0) {
+			(authenticated ? userRejections : ipRejections).increment();
+			reject(response, retryAfterNanos);
+			return;
+		}
+		
+		filterChain.doFilter(request, response);
+	}
+	
+	private int cost(HttpServletRequest request) {
+		String path = request.getRequestURI();
+		
+		// The same cost applies to the blocking and the asynchronous variant of an endpoint
+		for (Map.Entry<String, Integer> endpointCost : endpointCosts.entrySet()) {
+			if (path.endsWith(endpointCost.getKey())) {
+				return endpointCost.getValue();
+			}
+		}
+		
+		return 1;
+	}
+	
+	private static void reject(HttpServletResponse response, long retryAfterNanos) throws IOException {
+		long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+		response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+		response.setContentType("text/plain;charset=UTF-8");
+		response.getWriter().write(TOO_MANY_REQUESTS_MESSAGE);
+	}
+	
+	/**
+	 * Capacity and refill rate shared by the buckets of one kind of key
+	 */
+	static final class BucketSettings {
+		
+		private final long nanosPerToken;
+		private final long burstNanos;
+		
+		BucketSettings(int capacity, double refillPerSecond) {
+			if (capacity <= 0 || refillPerSecond <= 0) {
+				throw new IllegalArgumentException("Rate limit capacity and refill rate must be positive");
+			}
+			
+			this.nanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+			this.burstNanos = capacity * nanosPerToken;
+		}
+	}
+	
+	/**
+	 * Token bucket kept as the single moment at which it will be full again
+	 * <p>
+	 * Taking tokens pushes that moment further by the time they take to be refilled, a request is allowed as long as
+	 * the moment stays within the capacity of the bucket from now. It is the same as counting tokens, with the 
+	 * refill computed lazily, but fits in one value that is updated with a single compare-and-set.
+	 */
+	static final class TokenBucket {
+		
+		private final BucketSettings settings;
+		private final AtomicLong fullAt;
+		
+		TokenBucket(BucketSettings settings) {
+			this.settings = settings;
+			this.fullAt = new AtomicLong(System.nanoTime());
+		}
+		
+		/**
+		 * Takes tokens out of the bucket if it holds enough of them
+		 * 
+		 * @param tokens Number of tokens to take
+		 * @param now Current time in nanoseconds, as returned by {@link System#nanoTime()}
+		 * @return 0 if the tokens were taken, otherwise the nanoseconds until the bucket holds enough of them
+		 */
+		long tryConsume(int tokens, long now) {
+			long costNanos = tokens * settings.nanosPerToken;
+			
+			while (true) {
+				long current = fullAt.get();
+				// A bucket full since some time ago is only full, the time it spent full does not add up
+				long next = (current - now > 0 ? current : now) + costNanos;
+				long overflowNanos = next - now - settings.burstNanos;
+				
+				if (overflowNanos > 0) {
+					return overflowNanos;
+				}
+				
+				if (fullAt.compareAndSet(current, next)) {
+					return 0;
+				}
+			}
+		}
+	}
+}
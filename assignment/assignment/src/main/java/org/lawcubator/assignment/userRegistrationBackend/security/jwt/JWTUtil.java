@@ -3,47 +3,96 @@ package org.lawcubator.assignment.userRegistrationBackend.security.jwt;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
 /**
  * Custom Implementation of JSON Web Token
+ * <p>
+ * Tokens whose signature has been verified once are kept in a bounded cache together with their parsed claims,
+ * so that repeated requests carrying the same token skip the signature check and the claims parsing.
+ * Every cached token is dropped as soon as its expiration time passes.
+ * <p>
+ * Signature verification and claims parsing are timed under {@code jwt.verification}, and token signing under
+ * {@code jwt.generation}. Hits of the verified token cache are not timed, they are counted by the cache metrics.
  */
 @Service
 public class JWTUtil {
 	
 	private static final String SECRET_KEY = "SECRET_KEY";
 	
+	private final Cache<String, Claims> verifiedTokens;
+	private final Timer verificationTimer;
+	private final Timer generationTimer;
+	
+	@Autowired
+	public JWTUtil(MeterRegistry meterRegistry,
+		       @Value("${jwt.token-cache.maximum-size:10000}") long tokenCacheMaximumSize) {
+		this.verifiedTokens = Caffeine.newBuilder()
+					      .maximumSize(tokenCacheMaximumSize)
+					      .expireAfter(new TokenExpiry())
+					      .recordStats()
+					      .build();
+		this.verificationTimer = Timer.builder("jwt.verification")
+					      .description("Time spent verifying the signature of a token and parsing its claims")
+					      .register(meterRegistry);
+		this.generationTimer = Timer.builder("jwt.generation")
+					    .description("Time spent creating and signing a token")
+					    .register(meterRegistry);
+		CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "verifiedTokens");
+	}
+	
 	public String extractUsername(String token) {
 		return extractClaim(token, Claims::getSubject);
 	}
 	
-	private Date extractExpiration(String token) {
-		return extractClaim(token, Claims::getExpiration);
+	/**
+	 * Returns the claims of a token whose signature has been verified
+	 * <p>
+	 * The signature is checked and the claims are parsed only the first time a token is seen,
+	 * later calls are served from the verified token cache. The returned claims are shared
+	 * and must not be modified.
+	 * 
+	 * @param token JSON Web Token to be verified
+	 * @return Verified claims of the token
+	 * @throws io.jsonwebtoken.JwtException if the token was malformed, expired or its signature was invalid
+	 */
+	public Claims extractVerifiedClaims(String token) {
+		return verifiedTokens.get(token, this::extractAllClaims);
 	}
 	
 	private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-		Claims claims = extractAllClaims(token);
+		Claims claims = extractVerifiedClaims(token);
 		return claimsResolver.apply(claims);
 	}
 	
 	private Claims extractAllClaims(String token) {
-		return Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token).getBody();
+		return verificationTimer.record(() -> Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token).getBody());
 	}
 	
-	private boolean isTokenExpired(String token) {
-		return extractExpiration(token).before(new Date());
+	private boolean isTokenExpired(Claims claims) {
+		return claims.getExpiration().before(new Date());
 	}
 	
 	public String generateToken(UserDetails userDetails) {
 		Map<String, Object> claims = new HashMap<>();
-		return createToken(claims, userDetails.getUsername());
+		return generationTimer.record(() -> createToken(claims, userDetails.getUsername()));
 	}
 	
 	private String createToken(Map<String, Object> claims, String subject) {
@@ -57,7 +106,44 @@ public class JWTUtil {
 	}
 	
 	public boolean validateToken(String token, UserDetails userDetails) {
-		String username = extractUsername(token);
-		return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+		return validateToken(extractVerifiedClaims(token), userDetails);
+	}
+	
+	/**
+	 * Validates already verified claims against the given User without parsing the token again
+	 * 
+	 * @param claims Verified claims of the token
+	 * @param userDetails User the token is expected to belong to
+	 * @return true if the token belongs to the User and has not expired yet
+	 */
+	public boolean validateToken(Claims claims, UserDetails userDetails) {
+		String username = claims.getSubject();
+		return (username.equals(userDetails.getUsername()) && !isTokenExpired(claims));
+	}
+	
+	/**
+	 * Expires a cached token at the moment its own {@code exp} claim passes
+	 */
+	private static final class TokenExpiry implements Expiry<String, Claims> {
+		
+		@Override
+		public long expireAfterCreate(String token, Claims claims, long currentTime) {
+			Date expiration = claims.getExpiration();
+			if (expiration == null) {
+				return Long.MAX_VALUE;
+			}
+			long millisToExpiration = expiration.getTime() - System.currentTimeMillis();
+			return TimeUnit.MILLISECONDS.toNanos(Math.max(0, millisToExpiration));
+		}
+		
+		@Override
+		public long expireAfterUpdate(String token, Claims claims, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+		
+		@Override
+		public long expireAfterRead(String token, Claims claims, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
 	}
 }
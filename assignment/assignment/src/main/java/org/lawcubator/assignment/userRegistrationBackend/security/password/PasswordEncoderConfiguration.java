@@ -0,0 +1,128 @@
+package org.lawcubator.assignment.userRegistrationBackend.security.password;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Configuration of the Password Encoder of the application
+ * <p>
+ * Passwords are hashed with BCrypt, prefixed with {@code {bcrypt}}. Its strength is calibrated at startup, so that
+ * a single hash takes at least {@code security.password.target-hash-time} on the machine the application runs on,
+ * within {@code security.password.minimum-strength} and {@code security.password.maximum-strength}, unless it is
+ * set with {@code security.password.strength}, which spares the time the calibration adds to the startup.
+ * Passwords stored in plain text before hashing was introduced carry no prefix, they are still matched as they are
+ * and hashed again the next time their User logs in, as are hashes whose strength is lower than the calibrated one.
+ * <p>
+ * Passwords hashed in bulk, such as those of imported Users, are hashed with {@code security.password.bulk-strength},
+ * {@code security.password.minimum-strength} by default, and are hashed again with the calibrated strength the next
+ * time their User logs in. Values that already are BCrypt hashes prefixed with {@code {bcrypt}} are kept as they are.
+ */
+@Configuration
+public class PasswordEncoderConfiguration {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PasswordEncoderConfiguration.class);
+	private static final String ENCODING_ID = "bcrypt";
+	private static final int CALIBRATION_ROUNDS = 3;
+	private static final Pattern ENCODED_PASSWORD_PATTERN = Pattern.compile("\\{" + ENCODING_ID + "\\}\\$2[abxy]?\\$\\d{2}\\$[./A-Za-z0-9]{53}");
+	
+	@Bean
+	public PooledPasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+						     @Value("${security.password.strength:0}") int fixedStrength,
+						     @Value("${security.password.target-hash-time:100ms}") Duration targetHashTime,
+						     @Value("${security.password.minimum-strength:10}") int minimumStrength,
+						     @Value("${security.password.maximum-strength:16}") int maximumStrength,
+						     @Value("${security.password.bulk-strength:0}") int bulkStrength,
+						     @Value("${security.password.hashing.pool-size:0}") int poolSize,
+						     @Value("${security.password.hashing.queue-capacity:50}") int queueCapacity) {
+		// A strength of 0 is calibrated
+		int strength = (fixedStrength > 0) ? fixedStrength : calibrateStrength(targetHashTime, minimumStrength, maximumStrength);
+		
+		DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(ENCODING_ID, 
+											  Map.of(ENCODING_ID, new BCryptPasswordEncoder(strength)));
+		passwordEncoder.setDefaultPasswordEncoderForMatches(new PlainTextPasswordMatcher());
+		
+		// A bulk strength of 0 is the minimum strength, never above the strength of the other hashes
+		int strengthOfBulkHashes = Math.min(strength, (bulkStrength > 0) ? bulkStrength : minimumStrength);
+		PasswordEncoder bulkPasswordEncoder = new DelegatingPasswordEncoder(ENCODING_ID, 
+										    Map.of(ENCODING_ID, new BCryptPasswordEncoder(strengthOfBulkHashes)));
+		
+		// A pool size of 0 uses every processor, hashing is bound by the CPU
+		int hashingPoolSize = (poolSize > 0) ? poolSize : Runtime.getRuntime().availableProcessors();
+		return new PooledPasswordEncoder(passwordEncoder, bulkPasswordEncoder, ENCODED_PASSWORD_PATTERN, 
+						 meterRegistry, hashingPoolSize, queueCapacity);
+	}
+	
+	/**
+	 * Finds the lowest BCrypt strength whose hashes take at least the target time
+	 * <p>
+	 * Every increment of the strength doubles the work of a hash, so the time of the minimum strength is measured
+	 * and the time of the higher ones is extrapolated from it.
+	 * 
+	 * @param targetHashTime Time a single hash should take at least
+	 * @param minimumStrength Strength used even if its hashes take longer than the target time
+	 * @param maximumStrength Strength never exceeded, even if its hashes take less than the target time
+	 * @return Calibrated strength
+	 */
+	static int calibrateStrength(Duration targetHashTime, int minimumStrength, int maximumStrength) {
+		BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minimumStrength);
+		long hashNanos = Long.MAX_VALUE;
+		
+		// The first round also warms up the code, the fastest round is the one least disturbed by everything else
+		for (int round = 0; round < CALIBRATION_ROUNDS; round++) {
+			long start = System.nanoTime();
+			encoder.encode("Calibration password");
+			hashNanos = Math.min(hashNanos, System.nanoTime() - start);
+		}
+		
+		int strength = minimumStrength;
+		long estimatedNanos = hashNanos;
+		
+		while (strength < maximumStrength && estimatedNanos < targetHashTime.toNanos()) {
+			strength++;
+			estimatedNanos *= 2;
+		}
+		
+		LOGGER.info("BCrypt strength calibrated to {}, about {} ms per hash (target {} ms)", 
+			    strength, estimatedNanos / 1_000_000, targetHashTime.toMillis());
+		return strength;
+	}
+	
+	/**
+	 * Matches the passwords stored in plain text before hashing was introduced, in constant time, so that the time
+	 * taken does not tell how much of a guess was right
+	 * <p>
+	 * Passwords are never stored in plain text again: they are hashed with BCrypt once found outdated
+	 * on login.
+	 */
+	private static final class PlainTextPasswordMatcher implements PasswordEncoder {
+		
+		@Override
+		public String encode(CharSequence rawPassword) {
+			throw new UnsupportedOperationException("Passwords are not stored in plain text");
+		}
+		
+		@Override
+		public boolean matches(CharSequence rawPassword, String encodedPassword) {
+			if (rawPassword == null || encodedPassword == null) {
+				return false;
+			}
+			
+			return MessageDigest.isEqual(rawPassword.toString().getBytes(StandardCharsets.UTF_8), 
+						     encodedPassword.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package org.lawcubator.assignment.userRegistrationBackend.security.password;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/**
+ * Password Encoder that hashes and verifies passwords on its own bounded pool of threads
+ * <p>
+ * Hashing is deliberately slow, so running it on the request threads would let a burst of logins or signups
+ * take all the CPU the rest of the API needs. Here at most {@code poolSize} hashes are computed at a time and at
+ * most {@code queueCapacity} more wait for their turn, a further caller is rejected straight away with
+ * {@code RejectedExecutionException}. Callers block until their hash has been computed.
+ * <p>
+ * Passwords hashed in bulk, such as those of imported Users, can be hashed with a cheaper encoder than the one
+ * used otherwise, and values that already are hashes of the format of the encoder are kept as they are.
+ * <p>
+ * The time spent hashing is recorded under {@code password.hashing}, tagged with the operation, and the time spent
+ * waiting along with the depth of the queue under the {@code executor} metrics of {@code passwordHashing}.
+ */
+public class PooledPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+	private final PasswordEncoder delegate;
+	private final PasswordEncoder bulkDelegate;
+	private final Pattern encodedPasswordPattern;
+	private final int poolSize;
+	private final ExecutorService executor;
+	private final Timer encodeTimer;
+	private final Timer matchesTimer;
+	
+	public PooledPasswordEncoder(PasswordEncoder delegate, MeterRegistry meterRegistry, int poolSize, int queueCapacity) {
+		this(delegate, delegate, null, meterRegistry, poolSize, queueCapacity);
+	}
+	
+	/**
+	 * @param delegate Encoder hashing and verifying passwords
+	 * @param bulkDelegate Encoder hashing the passwords of {@link #encodeAll(List)}
+	 * @param encodedPasswordPattern Pattern of the values that already are hashes, null if none is recognised
+	 * @param meterRegistry Registry the time spent hashing is recorded to
+	 * @param poolSize Number of passwords hashed at a time
+	 * @param queueCapacity Number of passwords waiting for their turn at most
+	 */
+	public PooledPasswordEncoder(PasswordEncoder delegate, PasswordEncoder bulkDelegate, Pattern encodedPasswordPattern,
+				     MeterRegistry meterRegistry, int poolSize, int queueCapacity) {
+		this.delegate = delegate;
+		this.bulkDelegate = bulkDelegate;
+		this.encodedPasswordPattern = encodedPasswordPattern;
+		this.poolSize = poolSize;
+		AtomicInteger threadNumber = new AtomicInteger();
+		ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+									       new ArrayBlockingQueue<>(queueCapacity),
+									       runnable -> new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet()),
+									       new ThreadPoolExecutor.AbortPolicy());
+		this.executor = ExecutorServiceMetrics.monitor(meterRegistry, threadPoolExecutor, "passwordHashing");
+		this.encodeTimer = Timer.builder("password.hashing")
+					.description("Time spent hashing a password or verifying it against a hash")
+					.tag("operation", "encode")
+					.register(meterRegistry);
+		this.matchesTimer = Timer.builder("password.hashing")
+					 .description("Time spent hashing a password or verifying it against a hash")
+					 .tag("operation", "matches")
+					 .register(meterRegistry);
+	}
+	
+	/**
+	 * @throws RejectedExecutionException if the pool was already busy with as many hashes as it can hold
+	 */
+	@Override
+	public String encode(CharSequence rawPassword) {
+		return await(executor.submit(() -> encodeTimer.recordCallable(() -> delegate.encode(rawPassword))));
+	}
+	
+	/**
+	 * Hashes many passwords at once, spreading them over all the threads of the pool
+	 * <p>
+	 * Passwords are hashed by the bulk encoder, and values that already are hashes are returned as they are.
+	 * Hashes weaker than those of {@link #encode(CharSequence)} are found outdated, and replaced, the next time
+	 * their User logs in.
+	 * 
+	 * @param rawPasswords Passwords to be hashed, or hashes
+	 * @return Hashes of the passwords, in the same order
+	 * @throws RejectedExecutionException if the pool was already busy with as many hashes as it can hold
+	 */
+	public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+		String[] encodedPasswords = new String[rawPasswords.size()];
+		// One task per thread rather than per password, so that a large batch does not overflow the queue
+		int tasks = Math.max(1, Math.min(poolSize, rawPasswords.size()));
+		List<Future<?>> futures = new ArrayList<>(tasks);
+		
+		for (int task = 0; task < tasks; task++) {
+			int firstIndex = task;
+			futures.add(executor.submit(() -> {
+				for (int i = firstIndex; i < encodedPasswords.length; i += tasks) {
+					CharSequence rawPassword = rawPasswords.get(i);
+					encodedPasswords[i] = isEncoded(rawPassword) ? rawPassword.toString()
+										     : encodeTimer.recordCallable(() -> bulkDelegate.encode(rawPassword));
+				}
+				return null;
+			}));
+		}
+		
+		for (Future<?> future : futures) {
+			await(future);
+		}
+		
+		return List.of(encodedPasswords);
+	}
+	
+	/**
+	 * @throws RejectedExecutionException if the pool was already busy with as many hashes as it can hold
+	 */
+	@Override
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		return await(executor.submit(() -> matchesTimer.recordCallable(() -> delegate.matches(rawPassword, encodedPassword))));
+	}
+	
+	/**
+	 * @param password Password, or hash of a password
+	 * @return true if the value already is a hash of the format of this encoder
+	 */
+	public boolean isEncoded(CharSequence password) {
+		return encodedPasswordPattern != null && password != null && encodedPasswordPattern.matcher(password).matches();
+	}
+	
+	@Override
+	public boolean upgradeEncoding(String encodedPassword) {
+		return delegate.upgradeEncoding(encodedPassword);
+	}
+	
+	private static <T> T await(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a password to be hashed", ex);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw new IllegalStateException(ex.getCause());
+		}
+	}
+	
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+}
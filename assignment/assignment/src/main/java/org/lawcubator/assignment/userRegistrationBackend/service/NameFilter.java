@@ -0,0 +1,119 @@
+package org.lawcubator.assignment.userRegistrationBackend.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of the names that have been taken, telling which names are certainly still free
+ * <p>
+ * Names are only ever added, never removed: a name that has been freed keeps being reported as possibly taken,
+ * which only costs a query to the database. The filter is meant to be loaded with every name present in the
+ * database and then told about every name saved. Until it has been loaded, every name is reported as possibly
+ * taken. With up to the expected number of names, names that have not been taken are reported as possibly
+ * taken at the given rate, which grows past it as more names are added.
+ * <p>
+ * Names can be added and looked up concurrently without any lock.
+ */
+public final class NameFilter {
+
+	private final AtomicLongArray bits;
+	private final long bitCount;
+	private final int hashCount;
+	private volatile boolean loaded;
+	
+	/**
+	 * @param expectedNames Number of names the filter is sized for
+	 * @param falsePositiveProbability Rate at which free names are reported as possibly taken
+	 * @throws IllegalArgumentException if the number of names was not positive or the rate was not between 0 and 1
+	 */
+	public NameFilter(long expectedNames, double falsePositiveProbability) {
+		if (expectedNames < 1) {
+			throw new IllegalArgumentException("Expected names must be greater than zero");
+		}
+		
+		if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+			throw new IllegalArgumentException("False positive probability must be between 0 and 1");
+		}
+		
+		long words = (long) Math.ceil(-expectedNames * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)) / Long.SIZE);
+		
+		// Bits are picked from 31 bit hashes
+		if (words * Long.SIZE > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Name filter would be too large");
+		}
+		
+		this.bits = new AtomicLongArray((int) words);
+		this.bitCount = words * Long.SIZE;
+		this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedNames * Math.log(2)));
+	}
+	
+	/**
+	 * Records that a name has been taken
+	 * 
+	 * @param name Name that has been saved
+	 */
+	public void add(String name) {
+		long hash = mix(name.hashCode());
+		int firstHash = (int) hash;
+		int secondHash = (int) (hash >>> 32);
+		
+		for (int i = 1; i <= hashCount; i++) {
+			long bit = bitOf(firstHash + i * secondHash);
+			long mask = 1L << bit;
+			int word = (int) (bit >>> 6);
+			long current = bits.get(word);
+			
+			while ((current & mask) == 0 && !bits.weakCompareAndSetVolatile(word, current, current | mask)) {
+				current = bits.get(word);
+			}
+		}
+	}
+	
+	/**
+	 * @param name Name that is about to be saved
+	 * @return false if the name has certainly not been taken, true if it may have been
+	 */
+	public boolean mightContain(String name) {
+		if (!loaded) {
+			return true;
+		}
+		
+		long hash = mix(name.hashCode());
+		int firstHash = (int) hash;
+		int secondHash = (int) (hash >>> 32);
+		
+		for (int i = 1; i <= hashCount; i++) {
+			long bit = bitOf(firstHash + i * secondHash);
+			
+			if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Marks the filter as holding every name present in the database, after which it starts answering lookups
+	 */
+	public void markLoaded() {
+		this.loaded = true;
+	}
+	
+	public boolean isLoaded() {
+		return loaded;
+	}
+	
+	private long bitOf(int combinedHash) {
+		return (combinedHash & 0x7fffffffL) % bitCount;
+	}
+	
+	/**
+	 * Spreads the bits of a hash code over 64 bits, so that both halves can be used as independent hashes
+	 */
+	private static long mix(int hashCode) {
+		long hash = hashCode * 0x9e3779b97f4a7c15L;
+		hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+		hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+		return hash ^ (hash >>> 31);
+	}
+}
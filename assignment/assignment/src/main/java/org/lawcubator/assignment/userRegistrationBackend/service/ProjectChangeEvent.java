@@ -0,0 +1,75 @@
+package org.lawcubator.assignment.userRegistrationBackend.service;
+
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+
+/**
+ * Represents a Project that has been saved, modified or deleted by the {@link ProjectService}
+ * <p>
+ * Events are published once the change has been made, and should be listened to with
+ * {@code @TransactionalEventListener(fallbackExecution = true)}: changes made within a transaction are then
+ * only delivered once it has been committed, and never if it has been rolled back. Events of concurrent changes
+ * may be delivered out of order, the version of saved Projects tells which one is the latest.
+ */
+public final class ProjectChangeEvent {
+
+	private final Type type;
+	private final Integer projectId;
+	private final String ownerUsername;
+	private final ProjectSummary project;
+
+	private ProjectChangeEvent(Type type, Integer projectId, String ownerUsername, ProjectSummary project) {
+		this.type = type;
+		this.projectId = projectId;
+		this.ownerUsername = ownerUsername;
+		this.project = project;
+	}
+
+	/**
+	 * @param project Details of the Project as they have been saved
+	 * @return Event of a Project that has been added or modified
+	 */
+	public static ProjectChangeEvent saved(ProjectSummary project) {
+		return new ProjectChangeEvent(Type.SAVED, project.getId(), project.getOwnerUsername(), project);
+	}
+
+	/**
+	 * @param projectId Id of the deleted Project
+	 * @param ownerUsername User who owned the deleted Project
+	 * @return Event of a Project that has been deleted
+	 */
+	public static ProjectChangeEvent removed(Integer projectId, String ownerUsername) {
+		return new ProjectChangeEvent(Type.REMOVED, projectId, ownerUsername, null);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public Integer getProjectId() {
+		return projectId;
+	}
+
+	public String getOwnerUsername() {
+		return ownerUsername;
+	}
+
+	/**
+	 * @return Details of the saved Project, or null if it has been deleted
+	 */
+	public ProjectSummary getProject() {
+		return project;
+	}
+
+	@Override
+	public String toString() {
+		return "ProjectChangeEvent [type=" + type + ", projectId=" + projectId + ", ownerUsername=" + ownerUsername
+				+ ", project=" + project + "]";
+	}
+
+	/**
+	 * Kind of change made to a Project
+	 */
+	public enum Type {
+		SAVED, REMOVED
+	}
+}
@@ -0,0 +1,130 @@
+package org.lawcubator.assignment.userRegistrationBackend.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.lawcubator.assignment.userRegistrationBackend.model.User;
+import org.lawcubator.assignment.userRegistrationBackend.model.Visibility;
+import org.lawcubator.assignment.userRegistrationBackend.repository.ProjectRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Service Implementation that exports Projects as newline delimited JSON.
+ * <p>
+ * Projects are read through a forward-only database cursor as {@link ProjectSummary} rows, which are never
+ * added to the persistence context, and written out one at a time. The memory used by an export therefore 
+ * does not depend on the number of Projects being exported.
+ */
+@Service
+public class ProjectExportService {
+
+	public static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+	
+	private final ProjectRepository projectRepository;
+	private final UserService userService;
+	private final TransactionTemplate transactionTemplate;
+	private final ObjectWriter projectWriter;
+	
+	@Autowired
+	public ProjectExportService(ProjectRepository projectRepository,
+				    UserService userService,
+				    PlatformTransactionManager transactionManager,
+				    ObjectMapper objectMapper) {
+		this.projectRepository = projectRepository;
+		this.userService = userService;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+		this.projectWriter = objectMapper.writerFor(ProjectSummary.class)
+						 .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+						 .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+	}
+	
+	/**
+	 * Prepares the export of all the Projects currently owned by a User
+	 * <p>
+	 * If User who has requested the Projects and User whose Projects are being requested are same
+	 * then all the projects of the User will be exported. However, if both are different,
+	 * then only {@code Public} Projects of the requested User will be exported.
+	 * 
+	 * @param currentUsername User who is requesting the Projects
+	 * @param requestedUsername User whose Projects are being requested
+	 * @return Export that writes the Projects once it is given an output
+	 * @throws IllegalArgumentException if the requested User was not present in the database
+	 */
+	public ProjectExport exportProjectsOfRequestedUser(String currentUsername, String requestedUsername) {
+		User requestedUser = userService.findUserByUsername(requestedUsername);
+		
+		if (requestedUser == null) {
+			throw new IllegalArgumentException("User not present in the database");
+		}
+		
+		if (currentUsername.equals(requestedUsername)) {
+			return outputStream -> export(() -> projectRepository.streamProjectsByUser(requestedUser), outputStream);
+		}
+		
+		return outputStream -> export(() -> projectRepository.streamProjectsByUserAndVisibility(requestedUser, Visibility.PUBLIC), outputStream);
+	}
+	
+	/**
+	 * Prepares the export of all the {@code Public} Projects that are owned by all the Users
+	 * existing in the application, except for the User requesting the Projects
+	 * 
+	 * @param currentUsername User who is requesting the Projects
+	 * @return Export that writes the Projects once it is given an output
+	 */
+	public ProjectExport exportPublicProjectsOfOtherUsers(String currentUsername) {
+		return outputStream -> export(() -> projectRepository.streamPublicProjectsOfOtherUsers(currentUsername), outputStream);
+	}
+	
+	private void export(Supplier<Stream<ProjectSummary>> query, OutputStream outputStream) throws IOException {
+		try {
+			// Streaming queries need a transaction that keeps the connection open until the last row has been read
+			transactionTemplate.executeWithoutResult(status -> {
+				try (Stream<ProjectSummary> projects = query.get()) {
+					write(projects.iterator(), outputStream);
+				} catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			});
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+	}
+	
+	private void write(Iterator<ProjectSummary> projects, OutputStream outputStream) throws IOException {
+		while (projects.hasNext()) {
+			projectWriter.writeValue(outputStream, projects.next());
+			outputStream.write('\n');
+		}
+		
+		outputStream.flush();
+	}
+	
+	/**
+	 * Export of Projects that has been validated, but not written yet
+	 */
+	@FunctionalInterface
+	public interface ProjectExport {
+		
+		/**
+		 * Writes every exported Project to the output as a single line of JSON
+		 * 
+		 * @param outputStream Output the Projects are written to
+		 * @throws IOException if the Projects could not be written to the output
+		 */
+		void writeTo(OutputStream outputStream) throws IOException;
+	}
+}
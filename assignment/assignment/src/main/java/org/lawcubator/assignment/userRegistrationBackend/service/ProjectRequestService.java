@@ -0,0 +1,237 @@
+package org.lawcubator.assignment.userRegistrationBackend.service;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import org.lawcubator.assignment.userRegistrationBackend.model.Project;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectBatchResult;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectCollectionVersion;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.lawcubator.assignment.userRegistrationBackend.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service Implementation that checks and carries out the Project requests, whether they are served on a
+ * servlet thread or handed over to an executor
+ * <p>
+ * Requests are checked against the current User the same way by the synchronous and the asynchronous Project
+ * endpoints. Responses carrying an entity tag are built in full here, the tag compared with the one sent in
+ * {@code If-None-Match} included, so that none of the work depends on the servlet request.
+ */
+@Service
+public class ProjectRequestService {
+
+	private final ProjectService projectService;
+	private final UserService userService;
+	
+	@Autowired
+	public ProjectRequestService(ProjectService projectService, UserService userService) {
+		this.projectService = projectService;
+		this.userService = userService;
+	}
+	
+	/**
+	 * Adds a new project to the database owned by the current User
+	 * <p>
+	 * Names that have already been taken are answered with {@code 400 Bad Request} without throwing, so that
+	 * rejecting them costs no more than the lookup.
+	 * 
+	 * @param projectToBeSaved New Project to be saved in the database
+	 * @param currentUsername User who is saving the Project
+	 * @return {@code 400 Bad Request} if the name has already been taken, the Project saved to the database
+	 * otherwise
+	 * @throws DataIntegrityViolationException if current Project name had been taken by an existing Project
+	 * in the database while the Project was being saved
+	 * @throws IllegalArgumentException if the proposed Project name is null or empty, or User of Project to be
+	 * saved is not same as the current User
+	 */
+	public ResponseEntity<Object> saveProject(Project projectToBeSaved, String currentUsername) {
+		if (projectToBeSaved.getUser() == null) {
+			throw new IllegalArgumentException("User credentials are invalid");
+		}
+		
+		User currentUser = userService.findUserByUsername(currentUsername);
+		
+		if (currentUser == null ||
+			!Objects.equals(currentUser.getId(), projectToBeSaved.getUser().getId()) ||
+			!currentUser.getUsername().equals(projectToBeSaved.getUser().getUsername()) ||
+			!userService.matchesPassword(projectToBeSaved.getUser().getPassword(), currentUser.getPassword())) {
+			throw new IllegalArgumentException("User credentials are invalid");
+		}
+		
+		String name = projectToBeSaved.getName();
+		
+		if (name == null || name.trim().isEmpty()) {
+			throw new IllegalArgumentException("Project name cannot be null or empty");
+		}
+		
+		if (projectService.isNameTaken(name)) {
+			return ResponseEntity.badRequest().body(ProjectService.NAME_TAKEN_MESSAGE);
+		}
+		
+		try {
+			Project savedProject = projectService.saveProject(projectToBeSaved);
+			return ResponseEntity.ok(savedProject);
+		} catch (DataIntegrityViolationException ex) {
+			throw new DataIntegrityViolationException(ProjectService.NAME_TAKEN_MESSAGE);
+		}
+	}
+	
+	/**
+	 * Adds a batch of new Projects to the database owned by the current User
+	 * 
+	 * @param projectsToBeSaved New Projects to be saved in the database
+	 * @param currentUsername User who is saving the Projects
+	 * @return Outcome of every Project of the batch, in the same order as the Projects were sent
+	 * @throws IllegalArgumentException if the current User is not present in the database, or if the batch was
+	 * empty or too large
+	 */
+	public List<ProjectBatchResult> saveProjects(List<Project> projectsToBeSaved, String currentUsername) {
+		User currentUser = userService.findUserByUsername(currentUsername);
+		
+		if (currentUser == null) {
+			throw new IllegalArgumentException("User credentials are invalid");
+		}
+		
+		List<ProjectBatchResult> results = projectService.saveProjects(projectsToBeSaved, currentUser);
+		return results;
+	}
+	
+	/**
+	 * Finds all the {@code Public} Projects of the other Users, unless none of them has changed since the
+	 * entity tag sent along
+	 * 
+	 * @param currentUsername User who is requesting the Projects
+	 * @param ifNoneMatch Value of the {@code If-None-Match} header, null if it was absent
+	 * @return {@code 304 Not Modified} if the tag still matches, the Projects ordered by Id otherwise, along with
+	 * their current tag
+	 */
+	public ResponseEntity<List<ProjectSummary>> findAllPublicProjectsOfOtherUsers(String currentUsername, String ifNoneMatch) {
+		ProjectCollectionVersion version = projectService.findVersionOfPublicProjectsOfOtherUsers(currentUsername);
+		
+		return conditionally(version.toETag(), ifNoneMatch,
+				     () -> projectService.findAllPublicProjectsOfOtherUsers(currentUsername));
+	}
+	
+	/**
+	 * Finds all the Projects of a User the current User is allowed to see, unless none of them has changed since
+	 * the entity tag sent along
+	 * 
+	 * @param currentUsername User who is requesting the Projects
+	 * @param requestedUsername User whose Projects are being requested
+	 * @param ifNoneMatch Value of the {@code If-None-Match} header, null if it was absent
+	 * @return {@code 304 Not Modified} if the tag still matches, the Projects ordered by Id otherwise, along with
+	 * their current tag
+	 * @throws IllegalArgumentException if the requested User was not present in the database
+	 */
+	public ResponseEntity<List<ProjectSummary>> findAllProjectsOfRequestedUser(String currentUsername, String requestedUsername,
+										   String ifNoneMatch) {
+		ProjectCollectionVersion version = projectService.findVersionOfProjectsOfRequestedUser(currentUsername, requestedUsername);
+		
+		return conditionally(version.toETag(), ifNoneMatch,
+				     () -> projectService.findAllProjectsOfRequestedUser(currentUsername, requestedUsername));
+	}
+	
+	/**
+	 * Locates a Project the current User is allowed to see, unless it has not changed since the entity tag
+	 * sent along
+	 * 
+	 * @param id Id of the Project that needs to be located
+	 * @param currentUsername User requesting the Project details
+	 * @param ifNoneMatch Value of the {@code If-None-Match} header, null if it was absent
+	 * @return {@code 304 Not Modified} if the tag still matches, the details of the Project otherwise, along with
+	 * its current tag
+	 * @throws IllegalArgumentException if the requested Project did not belong to the requested User and it's
+	 * visibility was set to {@code Private}
+	 * @throws EmptyResultDataAccessException if Project with given Id was not present in the database
+	 */
+	public ResponseEntity<ProjectSummary> findProjectById(Integer id, String currentUsername, String ifNoneMatch) {
+		ProjectSummary project = projectService.findProjectSummaryById(id, currentUsername);
+		
+		return conditionally("p" + project.getId() + "v" + project.getVersion(), ifNoneMatch, () -> project);
+	}
+	
+	/**
+	 * Modifies the name, description and Visibility of a Project of the current User
+	 * 
+	 * @param newProjectDetails Project with new credentials
+	 * @param currentUsername User who is modifying the Project
+	 * @param writeBehind Whether the modification can be written after it has been acknowledged
+	 * @return Details of the modified Project
+	 * @throws EmptyResultDataAccessException if Project with given Id was not present in the database
+	 * @throws IllegalArgumentException if User credentials of the project were attempted to be modified or
+	 * if the proposed Project name was null or empty or the Project does not belong to the current User
+	 * @throws OptimisticLockingFailureException if the Project has been modified since the version sent along
+	 * @throws DataIntegrityViolationException if current Project name had already been taken by an existing
+	 * Project in the database
+	 */
+	public ProjectSummary modifyProject(Project newProjectDetails, String currentUsername, boolean writeBehind) {
+		if (newProjectDetails.getUser() == null) {
+			throw new IllegalArgumentException("User credentials are invalid");
+		}
+		
+		// Served from the cache of User details, the Id of the User is checked by the update itself
+		UserDetails currentUser = userService.loadUserByUsername(currentUsername);
+		
+		if (!currentUser.getUsername().equals(newProjectDetails.getUser().getUsername()) ||
+			!userService.matchesPassword(newProjectDetails.getUser().getPassword(), currentUser.getPassword())) {
+			throw new IllegalArgumentException("User details cannot be modified");
+		}
+		
+		String name = newProjectDetails.getName();
+		
+		if (name == null || name.trim().isEmpty()) {
+			throw new IllegalArgumentException("Project name cannot be null or empty");
+		}
+		
+		try {
+			ProjectSummary modifiedProject = writeBehind ? projectService.modifyProjectLater(newProjectDetails, currentUsername)
+								     : projectService.modifyProject(newProjectDetails, currentUsername);
+			return modifiedProject;
+		} catch (DataIntegrityViolationException ex) {
+			throw new DataIntegrityViolationException(ProjectService.NAME_TAKEN_MESSAGE);
+		}
+	}
+	
+	private static <T> ResponseEntity<T> conditionally(String eTag, String ifNoneMatch, Supplier<T> body) {
+		if (matches(eTag, ifNoneMatch)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+		}
+		
+		return ResponseEntity.ok().eTag(eTag).body(body.get());
+	}
+	
+	/**
+	 * @return true if one of the entity tags listed in {@code If-None-Match} is the given one, compared weakly
+	 * as requests for reading are
+	 */
+	private static boolean matches(String eTag, String ifNoneMatch) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		
+		String quotedETag = "\"" + eTag + "\"";
+		
+		for (String candidate : ifNoneMatch.split(",")) {
+			String tag = candidate.trim();
+			
+			if (tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+			
+			if (tag.equals("*") || tag.equals(quotedETag)) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+}
@@ -1,29 +1,129 @@
 package org.lawcubator.assignment.userRegistrationBackend.service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import org.lawcubator.assignment.userRegistrationBackend.model.Project;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectBatchResult;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectCollectionVersion;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectPage;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
 import org.lawcubator.assignment.userRegistrationBackend.model.User;
 import org.lawcubator.assignment.userRegistrationBackend.model.Visibility;
 import org.lawcubator.assignment.userRegistrationBackend.repository.ProjectRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
 /**
  * Service Implementation that loads Project specific data. 
+ * <p>
+ * Details of Projects located by their Id are kept in a cache bounded by their estimated size in memory and by
+ * their age. Entries are invalidated whenever a Project is saved or deleted, and access to {@code Private}
+ * Projects is checked on every call, whether the details came from the cache or from the database.
+ * <p>
+ * Every Project saved, modified or deleted is published as a {@link ProjectChangeEvent}.
+ * <p>
+ * Names that have been taken are tracked by a {@link NameFilter}, loaded once the application is ready, so that
+ * most names can be found free without querying the database. 
+ * <p>
+ * Modifications can be acknowledged before being written, see {@link #modifyProjectLater(Project, String)}. Pending
+ * modifications are written when the application shuts down.
+ * <p>
+ * {@code Public} Projects are also held in a {@link PublicProjectSnapshot}, loaded once the application is ready
+ * and kept up to date with every {@link ProjectChangeEvent}, which the Projects of other Users are listed from.
+ * <p>
+ * Every public method is timed under {@code service.calls}, tagged with its class and method names.
  */
 @Service
 public class ProjectService {
 
+	private static final String INVALID_CREDENTIALS_MESSAGE = "User credentials are invalid";
+	private static final String EMPTY_NAME_MESSAGE = "Project name cannot be null or empty";
+	static final String NAME_TAKEN_MESSAGE = "Project name has already been taken. Try a new one.";
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProjectService.class);
+	
 	private final ProjectRepository projectRepository;
 	private final UserService userService;
+	private final TransactionTemplate transactionTemplate;
+	private final ApplicationEventPublisher eventPublisher;
+	private final AsyncCache<Integer, ProjectSummary> projectCache;
+	private final NameFilter nameFilter;
+	private final Counter nameLookupsAvoided;
+	private final ProjectWriteBehindBuffer writeBehindBuffer;
+	private final PublicProjectSnapshot publicProjects;
+	private final int maximumPublicProjects;
+	private final int maximumPageSize;
+	private final int maximumBatchSize;
+	private final int batchChunkSize;
 	
 	@Autowired
-	public ProjectService(ProjectRepository projectRepository, UserService userService) {
+	public ProjectService(ProjectRepository projectRepository, 
+			      UserService userService,
+			      PlatformTransactionManager transactionManager,
+			      ApplicationEventPublisher eventPublisher,
+			      ProjectWriteBehindBuffer writeBehindBuffer,
+			      PublicProjectSnapshot publicProjects,
+			      MeterRegistry meterRegistry,
+			      @Value("${project.cache.maximum-weight:16777216}") long projectCacheMaximumWeight,
+			      @Value("${project.cache.expire-after-write:10m}") Duration projectCacheExpireAfterWrite,
+			      @Value("${project.other-projects.max-results:1000}") int maximumPublicProjects,
+			      @Value("${project.page.max-size:500}") int maximumPageSize,
+			      @Value("${project.batch.max-size:10000}") int maximumBatchSize,
+			      @Value("${project.batch.chunk-size:500}") int batchChunkSize,
+			      @Value("${project.name-filter.expected-names:1000000}") long nameFilterExpectedNames,
+			      @Value("${project.name-filter.false-positive-probability:0.01}") double nameFilterFalsePositiveProbability) {
 		this.projectRepository = projectRepository;
 		this.userService = userService;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.eventPublisher = eventPublisher;
+		this.projectCache = Caffeine.newBuilder()
+					    .maximumWeight(projectCacheMaximumWeight)
+					    .weigher((Integer id, ProjectSummary project) -> estimateSize(project))
+					    .expireAfterWrite(projectCacheExpireAfterWrite)
+					    .recordStats()
+					    .buildAsync();
+		CaffeineCacheMetrics.monitor(meterRegistry, projectCache.synchronous(), "projects");
+		this.nameFilter = new NameFilter(nameFilterExpectedNames, nameFilterFalsePositiveProbability);
+		this.nameLookupsAvoided = Counter.builder("projects.lookups.avoided")
+						 .description("Project name lookups answered without querying the projects table")
+						 .tag("source", "filter")
+						 .register(meterRegistry);
+		this.writeBehindBuffer = writeBehindBuffer;
+		this.publicProjects = publicProjects;
+		this.maximumPublicProjects = maximumPublicProjects;
+		this.maximumPageSize = maximumPageSize;
+		this.maximumBatchSize = maximumBatchSize;
+		this.batchChunkSize = batchChunkSize;
 	}
 
 	/**
@@ -34,6 +134,7 @@ public class ProjectService {
 	 * @throws DataIntegrityViolationException if current Project name had already been taken by an existing 
 	 * project in the database
 	 */
+	@Timed("service.calls")
 	public Project saveProject(Project projectToBeSaved) {
 		Visibility visibility = projectToBeSaved.getVisibility();
 		
@@ -42,30 +143,223 @@ public class ProjectService {
 		}
 		
 		Project savedProject = projectRepository.save(projectToBeSaved);
+		projectCache.synchronous().invalidate(savedProject.getId());
+		nameFilter.add(savedProject.getName());
+		eventPublisher.publishEvent(ProjectChangeEvent.saved(summarize(savedProject)));
 		return savedProject;
 	}
 	
 	/**
-	 * Locates a Project in the database with requested Id requested by a User
+	 * Checks whether a Project name has already been taken, before a Project is saved under it
+	 * <p>
+	 * Names that have certainly not been taken are answered from memory. Other names are looked up with a single
+	 * query, outside of any transaction. A name found free may still be taken concurrently before the Project is
+	 * saved, which the unique constraint of the database catches.
+	 * 
+	 * @param name Name of the Project to be saved
+	 * @return true if a Project with the same name is present in the database
+	 */
+	@Timed("service.calls")
+	public boolean isNameTaken(String name) {
+		if (!nameFilter.mightContain(name)) {
+			nameLookupsAvoided.increment();
+			return false;
+		}
+		
+		return projectRepository.existsByName(name);
+	}
+	
+	/**
+	 * Adds new Projects to the database in a single transaction, using batched inserts
+	 * <p>
+	 * Either all the Projects are saved or none of them is.
+	 * 
+	 * @param projectsToBeSaved New Projects to be saved in the database
+	 * @return Projects saved to the database
+	 * @throws DataIntegrityViolationException if any of the Project names had already been taken
+	 */
+	@Timed("service.calls")
+	public List<Project> saveProjects(List<Project> projectsToBeSaved) {
+		for (Project projectToBeSaved : projectsToBeSaved) {
+			if (projectToBeSaved.getVisibility() == null) {
+				projectToBeSaved.setVisibility(Visibility.PUBLIC);
+			}
+		}
+		
+		List<Project> savedProjects = projectRepository.saveAll(projectsToBeSaved);
+		
+		for (Project savedProject : savedProjects) {
+			projectCache.synchronous().invalidate(savedProject.getId());
+			nameFilter.add(savedProject.getName());
+			eventPublisher.publishEvent(ProjectChangeEvent.saved(summarize(savedProject)));
+		}
+		
+		return savedProjects;
+	}
+	
+	/**
+	 * Adds a batch of new Projects to the database owned by the current User
+	 * <p>
+	 * Every Project is validated on its own, a Project that cannot be saved is reported without preventing
+	 * the rest of the batch from being saved. Names are checked for uniqueness with one query per chunk, and 
+	 * valid Projects are inserted chunk by chunk, each chunk in its own transaction using batched inserts.
+	 * 
+	 * @param projectsToBeSaved New Projects to be saved in the database
+	 * @param currentUser User who is saving the Projects
+	 * @return Outcome of every Project of the batch, in the same order as the Projects were sent
+	 * @throws IllegalArgumentException if the batch was empty or larger than {@code project.batch.max-size}
+	 */
+	@Timed("service.calls")
+	public List<ProjectBatchResult> saveProjects(List<Project> projectsToBeSaved, User currentUser) {
+		if (projectsToBeSaved == null || projectsToBeSaved.isEmpty()) {
+			throw new IllegalArgumentException("Batch cannot be empty");
+		}
+		
+		if (projectsToBeSaved.size() > maximumBatchSize) {
+			throw new IllegalArgumentException("Batch cannot contain more than " + maximumBatchSize + " Projects");
+		}
+		
+		ProjectBatchResult[] results = new ProjectBatchResult[projectsToBeSaved.size()];
+		Set<String> namesInBatch = new HashSet<>();
+		
+		for (int start = 0; start < projectsToBeSaved.size(); start += batchChunkSize) {
+			int end = Math.min(start + batchChunkSize, projectsToBeSaved.size());
+			List<Integer> validIndexes = new ArrayList<>();
+			
+			for (int index = start; index < end; index++) {
+				String error = validateBatchProject(projectsToBeSaved.get(index), currentUser, namesInBatch);
+				if (error == null) {
+					validIndexes.add(index);
+				} else {
+					results[index] = ProjectBatchResult.rejected(index, projectsToBeSaved.get(index).getName(), error);
+				}
+			}
+			
+			rejectTakenNames(projectsToBeSaved, validIndexes, results);
+			insertChunk(projectsToBeSaved, validIndexes, results);
+		}
+		
+		return List.of(results);
+	}
+	
+	private String validateBatchProject(Project projectToBeSaved, User currentUser, Set<String> namesInBatch) {
+		User user = projectToBeSaved.getUser();
+		
+		if (user == null ||
+			!Objects.equals(currentUser.getId(), user.getId()) ||
+			!currentUser.getUsername().equals(user.getUsername()) ||
+			!userService.matchesPassword(user.getPassword(), currentUser.getPassword())) {
+			return INVALID_CREDENTIALS_MESSAGE;
+		}
+		
+		if (projectToBeSaved.getId() != null) {
+			return "Id of a new Project cannot be provided";
+		}
+		
+		String name = projectToBeSaved.getName();
+		
+		if (name == null || name.trim().isEmpty()) {
+			return EMPTY_NAME_MESSAGE;
+		}
+		
+		if (!namesInBatch.add(name)) {
+			return NAME_TAKEN_MESSAGE;
+		}
+		
+		return null;
+	}
+	
+	private void rejectTakenNames(List<Project> projectsToBeSaved, List<Integer> validIndexes, ProjectBatchResult[] results) {
+		if (validIndexes.isEmpty()) {
+			return;
+		}
+		
+		// Only the names that may have been taken are looked up
+		List<String> names = new ArrayList<>(validIndexes.size());
+		for (Integer index : validIndexes) {
+			String name = projectsToBeSaved.get(index).getName();
+			if (nameFilter.mightContain(name)) {
+				names.add(name);
+			}
+		}
+		
+		nameLookupsAvoided.increment(validIndexes.size() - names.size());
+		
+		if (names.isEmpty()) {
+			return;
+		}
+		
+		Set<String> takenNames = projectRepository.findExistingNames(names);
+		
+		validIndexes.removeIf(index -> {
+			String name = projectsToBeSaved.get(index).getName();
+			if (takenNames.contains(name)) {
+				results[index] = ProjectBatchResult.rejected(index, name, NAME_TAKEN_MESSAGE);
+				return true;
+			}
+			return false;
+		});
+	}
+	
+	private void insertChunk(List<Project> projectsToBeSaved, List<Integer> validIndexes, ProjectBatchResult[] results) {
+		if (validIndexes.isEmpty()) {
+			return;
+		}
+		
+		List<Project> chunk = new ArrayList<>(validIndexes.size());
+		for (Integer index : validIndexes) {
+			chunk.add(projectsToBeSaved.get(index));
+		}
+		
+		try {
+			List<Project> savedProjects = transactionTemplate.execute(status -> saveProjects(chunk));
+			for (int i = 0; i < validIndexes.size(); i++) {
+				results[validIndexes.get(i)] = ProjectBatchResult.saved(validIndexes.get(i), savedProjects.get(i));
+			}
+		} catch (DataIntegrityViolationException ex) {
+			// A name was taken concurrently after it had been checked, the chunk is retried one Project at a time
+			// to find out which ones can still be saved
+			for (Integer index : validIndexes) {
+				// The failed transaction has already assigned an Id to the Project, so a fresh copy is saved instead
+				Project failedProject = projectsToBeSaved.get(index);
+				Project projectToBeSaved = new Project(failedProject.getName(), failedProject.getDescription(), 
+								       failedProject.getVisibility(), failedProject.getUser());
+				try {
+					results[index] = ProjectBatchResult.saved(index, saveProject(projectToBeSaved));
+				} catch (DataIntegrityViolationException e) {
+					results[index] = ProjectBatchResult.rejected(index, projectToBeSaved.getName(), NAME_TAKEN_MESSAGE);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Locates the details of a Project in the database with requested Id requested by a User, from the cache
+	 * if present
 	 * <p>
 	 * The requested Project should either belong to the User requesting the Project, or else, 
 	 * it's visibility should be set to {@code Public}.
 	 * 
 	 * @param id Id of the Project that needs to be located
 	 * @param currentUsername User requesting the Project details
-	 * @return The requested Project
+	 * @return Details of the requested Project
 	 * @throws IllegalArgumentException if the requested Project did not belong to the requested User and it's
 	 * visibility was set to {@code Private}
 	 * @throws EmptyResultDataAccessException if Project with given Id was not present in the database
 	 */
-	public Project findProjectById(Integer id, String currentUsername) {
-		Project foundProject = projectRepository.findProjectById(id);
+	@Timed("service.calls")
+	public ProjectSummary findProjectSummaryById(Integer id, String currentUsername) {
+		ProjectSummary foundProject = writeBehindBuffer.findPending(id);
+		
+		if (foundProject == null) {
+			foundProject = findCachedProjectSummaryById(id);
+		}
 		
 		if (foundProject == null) {
 			throw new EmptyResultDataAccessException(0);
 		}
 		
-		if (!foundProject.getUser().getUsername().equals(currentUsername) && foundProject.getVisibility() == Visibility.PRIVATE) {
+		if (!foundProject.getOwnerUsername().equals(currentUsername) && foundProject.getVisibility() == Visibility.PRIVATE) {
 			throw new IllegalArgumentException("Request is a private project of someone else");
 		}
 		
@@ -73,54 +367,246 @@ public class ProjectService {
 	}
 	
 	/**
-	 * Modifies the details of of the requested Project.
+	 * Finds the details of a Project in the cache, loading them from the database on a miss
 	 * <p>
-	 * Only Project description and Visibility can be modified.
+	 * The cache only holds a lock while it installs the pending entry, the query then runs on the calling thread.
+	 * Loading inside the lock would make every thread touching a key of the same bin wait for a connection
+	 * along with it, while holding connections of their own. Concurrent misses of the same Project wait for 
+	 * a single load, and an entry invalidated while it is loading is not put back once loaded.
+	 * 
+	 * @param id Id of the Project that needs to be located
+	 * @return Details of the Project, or null if it was not present in the database
+	 */
+	private ProjectSummary findCachedProjectSummaryById(Integer id) {
+		CompletableFuture<ProjectSummary> loading = new CompletableFuture<>();
+		CompletableFuture<ProjectSummary> project = projectCache.get(id, (key, executor) -> loading);
+		
+		if (project == loading) {
+			try {
+				loading.complete(projectRepository.findProjectSummaryById(id));
+			} catch (Throwable ex) {
+				// Errors as well, the threads waiting for the load would never be released otherwise
+				loading.completeExceptionally(ex);
+				throw ex;
+			}
+		}
+		
+		try {
+			return project.join();
+		} catch (CompletionException ex) {
+			if (ex.getCause() instanceof Error) {
+				throw (Error) ex.getCause();
+			}
+			
+			throw (RuntimeException) ex.getCause();
+		}
+	}
+	
+	/**
+	 * Modifies the details of of the requested Project with a single statement.
+	 * <p>
+	 * Only Project name, description and Visibility can be modified, and only by the User owning the Project.
 	 * User(Owner) credentials of the project are not allowed to be modified.
 	 * New Name of the Project should be chosen such that it is already not used by any existing Project 
-	 * in the database.
+	 * in the database. If the version of the Project is sent along, the Project is only modified if it is
+	 * still at that version, so that concurrent modifications do not overwrite each other.
 	 * 
 	 * @param newProjectDetails Project with new credentials
-	 * @return The modified Project whose credentials have been modified
+	 * @param currentUsername User who is modifying the Project
+	 * @return Details of the modified Project
 	 * @throws EmptyResultDataAccessException if Project with given Id was not present in the database
+	 * @throws IllegalArgumentException if the Project does not belong to the current User, or if User credentials
+	 * of the project were attempted to be modified
+	 * @throws OptimisticLockingFailureException if the Project has been modified since the version sent along
 	 * @throws DataIntegrityViolationException if current Project name had already been taken by an existing 
 	 * Project in the database
 	 */
-	public Project modifyProject(Project newProjectDetails) {
-		Project projectToBeModified = findProjectById(newProjectDetails.getId(), newProjectDetails.getUser().getUsername());
+	@Timed("service.calls")
+	public ProjectSummary modifyProject(Project newProjectDetails, String currentUsername) {
+		Integer id = newProjectDetails.getId();
+		Long version = newProjectDetails.getVersion();
+		Visibility visibility = (newProjectDetails.getVisibility() == null) ? Visibility.PUBLIC : newProjectDetails.getVisibility();
+		// Modifications acknowledged earlier are written first, so that this one applies on top of them
+		writeBehindBuffer.flush(List.of(id));
 		
-		if (projectToBeModified == null) {
-			throw new EmptyResultDataAccessException(0);
+		int modifiedProjects = projectRepository.updateProjectOfOwner(id, version, newProjectDetails.getUser().getId(), currentUsername,
+									     newProjectDetails.getName(), newProjectDetails.getDescription(), visibility);
+		projectCache.synchronous().invalidate(id);
+		
+		if (modifiedProjects > 0) {
+			nameFilter.add(newProjectDetails.getName());
 		}
 		
-		projectToBeModified.setName(newProjectDetails.getName());
-		projectToBeModified.setDescription(newProjectDetails.getDescription());
-		if (newProjectDetails.getVisibility() == null) {
-			newProjectDetails.setVisibility(Visibility.PUBLIC);
+		if (modifiedProjects == 0) {
+			// Nothing has been modified, the current state of the Project tells why
+			ProjectSummary currentProject = projectRepository.findProjectSummaryById(id);
+			
+			if (currentProject == null) {
+				throw new EmptyResultDataAccessException(0);
+			}
+			
+			if (!currentProject.getOwnerUsername().equals(currentUsername)) {
+				throw new IllegalArgumentException("Project does not belong to current user");
+			}
+			
+			if (version != null && !version.equals(currentProject.getVersion())) {
+				throw new OptimisticLockingFailureException("Project has been modified by someone else. Reload it and try again.");
+			}
+			
+			throw new IllegalArgumentException("User details cannot be modified");
 		}
-		projectToBeModified.setVisibility(newProjectDetails.getVisibility());
 		
-		Project modidfiedProject = saveProject(projectToBeModified);
-		return modidfiedProject;
+		if (version == null) {
+			ProjectSummary modifiedProject = findProjectSummaryById(id, currentUsername);
+			eventPublisher.publishEvent(ProjectChangeEvent.saved(modifiedProject));
+			return modifiedProject;
+		}
+		
+		// Not cached, a concurrent modification may already have been invalidated
+		ProjectSummary modifiedProject = new ProjectSummary(id, newProjectDetails.getName(), newProjectDetails.getDescription(), 
+								    visibility, currentUsername, version + 1);
+		eventPublisher.publishEvent(ProjectChangeEvent.saved(modifiedProject));
+		return modifiedProject;
 	}
 
 	/**
-	 * Deletes a Project present in the database with given Id
+	 * Modifies the details of the requested Project, acknowledging the modification before it is written
+	 * <p>
+	 * The modification is checked against the latest details of the Project, including the modifications
+	 * acknowledged before it, and kept in memory along with them. A background writer then writes the latest
+	 * details of every Project modified since its previous run, with a single UPDATE per Project however many
+	 * times it has been modified. Until then, {@link #findProjectSummaryById(Integer, String)} returns the
+	 * modified details, while the other queries return the details written last.
+	 * <p>
+	 * A modification renaming the Project, whose name cannot be checked for uniqueness before it is written, and a
+	 * modification arriving while {@code project.write-behind.maximum-pending} Projects are waiting to be written,
+	 * are written straight away by {@link #modifyProject(Project, String)} instead. The Id of the User is checked
+	 * against the current User before the modification is acknowledged, and once more when it is written.
+	 * 
+	 * @param newProjectDetails Project with new credentials
+	 * @param currentUsername User who is modifying the Project
+	 * @return Details of the modified Project
+	 * @throws EmptyResultDataAccessException if Project with given Id was not present in the database
+	 * @throws IllegalArgumentException if the Project does not belong to the current User, or the Id of the User
+	 * is not the one of the current User
+	 * @throws OptimisticLockingFailureException if the Project has been modified since the version sent along
+	 * @throws DataIntegrityViolationException if the Project was renamed to a name that had already been taken
+	 */
+	@Timed("service.calls")
+	public ProjectSummary modifyProjectLater(Project newProjectDetails, String currentUsername) {
+		Integer id = newProjectDetails.getId();
+		Long version = newProjectDetails.getVersion();
+		Visibility visibility = (newProjectDetails.getVisibility() == null) ? Visibility.PUBLIC : newProjectDetails.getVisibility();
+		// A modification acknowledged with the Id of another User would otherwise only be dropped once written
+		User currentUser = userService.findUserByUsername(currentUsername);
+		
+		if (currentUser == null || !Objects.equals(currentUser.getId(), newProjectDetails.getUser().getId())) {
+			throw new IllegalArgumentException("User details cannot be modified");
+		}
+		
+		ProjectSummary modifiedProject = writeBehindBuffer.modify(id, newProjectDetails.getUser().getId(), () -> findCachedProjectSummaryById(id), latestProject -> {
+			if (latestProject == null) {
+				throw new EmptyResultDataAccessException(0);
+			}
+			
+			if (!latestProject.getOwnerUsername().equals(currentUsername)) {
+				throw new IllegalArgumentException("Project does not belong to current user");
+			}
+			
+			if (version != null && !version.equals(latestProject.getVersion())) {
+				throw new OptimisticLockingFailureException("Project has been modified by someone else. Reload it and try again.");
+			}
+			
+			if (!latestProject.getName().equals(newProjectDetails.getName())) {
+				return null;
+			}
+			
+			long latestVersion = (latestProject.getVersion() == null) ? 0 : latestProject.getVersion();
+			return new ProjectSummary(id, latestProject.getName(), newProjectDetails.getDescription(), visibility, 
+						  currentUsername, latestVersion + 1);
+		});
+		
+		if (modifiedProject == null) {
+			return modifyProject(newProjectDetails, currentUsername);
+		}
+		
+		return modifiedProject;
+	}
+	
+	/**
+	 * Deletes a Project present in the database with given Id with a single statement
 	 * <p>
 	 * The Project should belong to the current User 
 	 *
 	 * @param id Id of the Project to be deleted
+	 * @param currentUsername User who is deleting the Project
 	 * @throws EmptyResultDataAccessException if Project with given Id was not present in the database
 	 * @throws IllegalArgumentException if the Project does not belong to the current User
 	 */
+	@Timed("service.calls")
 	public void removeProject(Integer id, String currentUsername) {
-		try {
-			findProjectById(id, currentUsername);
-		} catch (IllegalArgumentException e) {
+		writeBehindBuffer.flush(List.of(id));
+		int removedProjects = projectRepository.deleteProjectOfOwner(id, currentUsername);
+		projectCache.synchronous().invalidate(id);
+		
+		if (removedProjects == 0) {
+			// Nothing has been deleted, find out whether the Project exists at all
+			if (projectRepository.findProjectSummaryById(id) == null) {
+				throw new EmptyResultDataAccessException(0);
+			}
+			
 			throw new IllegalArgumentException("Project does not belong to current user");
 		}
 		
-		projectRepository.deleteById(id);		
+		eventPublisher.publishEvent(ProjectChangeEvent.removed(id, currentUsername));
+	}
+
+	/**
+	 * Deletes Projects present in the database with given Ids, with one transaction per chunk of Ids
+	 * <p>
+	 * Only Projects belonging to the current User are deleted. Ids of Projects that are not present in the
+	 * database or belong to another User are skipped. The Ids of the chunk belonging to the current User are
+	 * selected and locked before they are deleted, so that removals are only announced for the Projects that
+	 * have actually been deleted.
+	 * 
+	 * @param ids Ids of the Projects to be deleted
+	 * @param currentUsername User who is deleting the Projects
+	 * @return Number of Projects deleted
+	 * @throws IllegalArgumentException if no Id was given or more than {@code project.batch.max-size}
+	 */
+	@Timed("service.calls")
+	public int removeProjects(List<Integer> ids, String currentUsername) {
+		if (ids == null || ids.isEmpty()) {
+			throw new IllegalArgumentException("Batch cannot be empty");
+		}
+		
+		if (ids.size() > maximumBatchSize) {
+			throw new IllegalArgumentException("Batch cannot contain more than " + maximumBatchSize + " Projects");
+		}
+		
+		int removedProjects = 0;
+		
+		for (int start = 0; start < ids.size(); start += batchChunkSize) {
+			List<Integer> chunk = ids.subList(start, Math.min(start + batchChunkSize, ids.size()));
+			writeBehindBuffer.flush(chunk);
+			List<Integer> removedIds = transactionTemplate.execute(status -> {
+				List<Integer> ownedIds = projectRepository.lockProjectIdsOfOwner(chunk, currentUsername);
+				
+				if (!ownedIds.isEmpty()) {
+					projectRepository.deleteProjectsOfOwner(ownedIds, currentUsername);
+				}
+				
+				return ownedIds;
+			});
+			projectCache.synchronous().invalidateAll(chunk);
+			removedProjects += removedIds.size();
+			
+			for (Integer id : removedIds) {
+				eventPublisher.publishEvent(ProjectChangeEvent.removed(id, currentUsername));
+			}
+		}
+		
+		return removedProjects;
 	}
 
 	/**
@@ -132,42 +618,200 @@ public class ProjectService {
 	 * 
 	 * @param currentUsername User who is requesting the Projects
 	 * @param requestedUsername User whose Projects are being requested
-	 * @return Set of all the Projects owned by the requested User. If requested User is same the requesting User,
-	 * all the Projects will be returned. Else, only {@code Public} Projects will be returned
+	 * @return List of all the Projects owned by the requested User ordered by Id. If requested User is same the
+	 * requesting User, all the Projects will be returned. Else, only {@code Public} Projects will be returned
 	 * @throws IllegalArgumentException - if the requested User was not present in the database
 	 */
-	public Set<Project> findAllProjectsOfRequestedUser(String currentUsername, String requestedUsername) {
+	@Timed("service.calls")
+	public List<ProjectSummary> findAllProjectsOfRequestedUser(String currentUsername, String requestedUsername) {
 		User requestedUser = userService.findUserByUsername(requestedUsername);
 		
 		if (requestedUser == null) {
 			throw new IllegalArgumentException("User not present in the database");
 		}
 		
-		Set<Project> projects = projectRepository.findProjectsByUser(requestedUser);
+		if (currentUsername.equals(requestedUsername)) {
+			return projectRepository.findProjectsByUser(requestedUser);
+		}
+		
+		return projectRepository.findProjectsByUserAndVisibility(requestedUser, Visibility.PUBLIC);
+	}
+	
+	/**
+	 * Finds the version of all the Projects currently owned by a User, as returned by
+	 * {@link #findAllProjectsOfRequestedUser(String, String)}, without loading any of them
+	 * 
+	 * @param currentUsername User who is requesting the Projects
+	 * @param requestedUsername User whose Projects are being requested
+	 * @return Version of the Projects owned by the requested User
+	 * @throws IllegalArgumentException - if the requested User was not present in the database
+	 */
+	@Timed("service.calls")
+	public ProjectCollectionVersion findVersionOfProjectsOfRequestedUser(String currentUsername, String requestedUsername) {
+		User requestedUser = userService.findUserByUsername(requestedUsername);
+		
+		if (requestedUser == null) {
+			throw new IllegalArgumentException("User not present in the database");
+		}
 		
 		if (currentUsername.equals(requestedUsername)) {
-			return projects;
+			return projectRepository.findVersionOfProjectsByUser(requestedUser);
 		}
 		
-		for (Project project : projects) {
-			if (project.getVisibility() == Visibility.PRIVATE) {
-				projects.remove(project);
-			}
+		return projectRepository.findVersionOfProjectsByUserAndVisibility(requestedUser, Visibility.PUBLIC);
+	}
+	
+	/**
+	 * Finds the version of all the {@code Public} Projects that are owned by all the Users existing in the
+	 * application, except for the User requesting the Projects, without loading any of them
+	 * <p>
+	 * The version covers every such Project, including the ones beyond the cap of 
+	 * {@link #findAllPublicProjectsOfOtherUsers(String)}. Once the {@code Public} Projects have been loaded in
+	 * memory, it is the version of all of them, including the ones of the requesting User, and no query is made.
+	 * 
+	 * @param currentUsername User who is requesting the Projects
+	 * @return Version of the Projects owned by all the Users except the requesting User
+	 */
+	@Timed("service.calls")
+	public ProjectCollectionVersion findVersionOfPublicProjectsOfOtherUsers(String currentUsername) {
+		if (publicProjects.isLoaded()) {
+			return publicProjects.getVersion();
 		}
 		
-		return projects;
+		ProjectCollectionVersion version = projectRepository.findVersionOfPublicProjectsOfOtherUsers(currentUsername);
+		return version;
 	}
 	
 	/**
 	 * Finds all the {@code Public} Projects that are owned by all the Users
 	 * existing in the application, except for the User requesting the Projects
+	 * <p>
+	 * At most {@code project.other-projects.max-results} Projects with the lowest Ids are returned. 
+	 * {@link #findPublicProjectsOfOtherUsers(String, String, int)} has to be used to go through all of them.
+	 * Projects are read from memory once the {@code Public} Projects have been loaded, from the database before.
 	 * 
 	 * @param currentUsername User who is requesting the Projects
-	 * @return Set of all the Projects owned by all the Users except the requesting User
+	 * @return List of all the Projects owned by all the Users except the requesting User, ordered by Id
 	 */
-	public Set<Project> findAllPublicProjectsOfOtherUsers(String currentUsername) {
-		User currentUser = userService.findUserByUsername(currentUsername);
-		Set<Project> projects = projectRepository.findAllPublicProjectsOfOtherUsers(currentUser);
+	@Timed("service.calls")
+	public List<ProjectSummary> findAllPublicProjectsOfOtherUsers(String currentUsername) {
+		if (publicProjects.isLoaded()) {
+			return publicProjects.findAllOfOtherUsers(currentUsername, maximumPublicProjects);
+		}
+		
+		List<ProjectSummary> projects = projectRepository.findAllPublicProjectsOfOtherUsers(currentUsername, PageRequest.of(0, maximumPublicProjects));
 		return projects;
 	}
+	
+	/**
+	 * Finds a single page of the {@code Public} Projects that are owned by all the Users
+	 * existing in the application, except for the User requesting the Projects
+	 * <p>
+	 * Projects are ordered by their Id. The page starts right after the Project the cursor points to, 
+	 * so the cost of fetching a page does not depend on how many pages came before it.
+	 * 
+	 * @param currentUsername User who is requesting the Projects
+	 * @param after Cursor returned along with the previous page, or null to fetch the first page
+	 * @param size Maximum number of Projects in the page, capped at {@code project.page.max-size}
+	 * @return Page of the Projects owned by all the Users except the requesting User
+	 * @throws IllegalArgumentException if the page size was not positive or the cursor was invalid
+	 */
+	@Timed("service.calls")
+	public ProjectPage findPublicProjectsOfOtherUsers(String currentUsername, String after, int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Page size must be greater than zero");
+		}
+		
+		int pageSize = Math.min(size, maximumPageSize);
+		Integer afterId = (after == null) ? 0 : decodeCursor(after);
+		
+		// One extra Project is fetched to find out whether there is a next page at all
+		List<ProjectSummary> projects = projectRepository.findPublicProjectsOfOtherUsersAfter(currentUsername, afterId, PageRequest.of(0, pageSize + 1));
+		
+		if (projects.size() <= pageSize) {
+			return new ProjectPage(projects, null);
+		}
+		
+		List<ProjectSummary> page = projects.subList(0, pageSize);
+		String next = encodeCursor(page.get(pageSize - 1).getId());
+		return new ProjectPage(page, next);
+	}
+	
+	/**
+	 * Starts loading the name of every Project into the {@link NameFilter} once the application is ready,
+	 * on a thread of its own so that the scan does not delay the startup
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void loadNameFilter() {
+		Thread loader = new Thread(this::scanNames, "project-name-filter-loader");
+		loader.setDaemon(true);
+		loader.start();
+	}
+	
+	/**
+	 * Invalidates the cached details of a changed Project, so that the modifications written by the
+	 * {@link ProjectWriteBehindBuffer} are not hidden by details cached before they were written
+	 * 
+	 * @param event Change made to the Project
+	 */
+	@EventListener
+	public void onProjectChange(ProjectChangeEvent event) {
+		projectCache.synchronous().invalidate(event.getProjectId());
+	}
+	
+	private void scanNames() {
+		long startTime = System.nanoTime();
+		TransactionTemplate readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+		readOnlyTransactionTemplate.setReadOnly(true);
+		
+		try {
+			// Streaming queries need a transaction that keeps the connection open until the last row has been read
+			readOnlyTransactionTemplate.executeWithoutResult(status -> {
+				try (Stream<String> names = projectRepository.streamAllNames()) {
+					names.forEach(nameFilter::add);
+				}
+			});
+		} catch (RuntimeException ex) {
+			LOGGER.error("Project name filter could not be loaded, every name will be looked up", ex);
+			return;
+		}
+		
+		nameFilter.markLoaded();
+		LOGGER.info("Project name filter loaded in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+	}
+	
+	private static ProjectSummary summarize(Project project) {
+		return new ProjectSummary(project.getId(), project.getName(), project.getDescription(), project.getVisibility(),
+					  project.getUser().getUsername(), project.getVersion());
+	}
+	
+	/**
+	 * Estimates the memory retained by the cached details of a Project, in bytes
+	 */
+	private static int estimateSize(ProjectSummary project) {
+		// Object headers and references of the entry, the details and its Id, plus two bytes per character
+		int size = 96;
+		size += estimateSize(project.getName());
+		size += estimateSize(project.getDescription());
+		size += estimateSize(project.getOwnerUsername());
+		return size;
+	}
+	
+	private static int estimateSize(String value) {
+		return (value == null) ? 0 : 40 + 2 * value.length();
+	}
+	
+	private String encodeCursor(Integer id) {
+		byte[] cursor = id.toString().getBytes(StandardCharsets.US_ASCII);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor);
+	}
+	
+	private Integer decodeCursor(String cursor) {
+		try {
+			byte[] id = Base64.getUrlDecoder().decode(cursor);
+			return Integer.valueOf(new String(id, StandardCharsets.US_ASCII));
+		} catch (IllegalArgumentException ex) {
+			throw new IllegalArgumentException("Cursor is invalid");
+		}
+	}
 }
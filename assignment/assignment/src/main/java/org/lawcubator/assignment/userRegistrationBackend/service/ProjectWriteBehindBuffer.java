@@ -0,0 +1,394 @@
+package org.lawcubator.assignment.userRegistrationBackend.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Buffer of the Project modifications that have been acknowledged before being written to the database
+ * <p>
+ * Every Project written is published as a {@link ProjectChangeEvent}, once its transaction has been committed.
+ * <p>
+ * Only the latest state of every Project is kept, so any number of modifications of a Project made between two
+ * flushes are written with a single UPDATE. Every {@code flushInterval}, a background writer writes all the
+ * buffered Projects in one transaction, as a single JDBC batch. Every UPDATE only applies if the Project is still
+ * at the version it had when it was first buffered and still belongs to the Id of the User who modified it.
+ * Modifications that no longer apply, because the Project has been deleted or modified in another way in the
+ * meantime, are dropped, logged and counted.
+ * <p>
+ * Modifications that do not fit the columns of the table are refused before they are acknowledged. Should the
+ * database still reject one, the batch it was part of is written again one Project at a time, so that only the
+ * rejected modification is dropped, logged and counted, and the others are written.
+ * <p>
+ * Modifications of a Project that has been buffered for longer than {@code maximumStaleness} write it first, so
+ * that no modification stays unwritten for much longer than that even if the writer falls behind. Once
+ * {@code maximumPending} Projects are buffered, further Projects are not buffered at all, and their modifications
+ * have to be written straight away. Pending modifications are written when the application shuts down, and
+ * logged in full if they still cannot be written.
+ */
+@Component
+final class ProjectWriteBehindBuffer implements DisposableBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProjectWriteBehindBuffer.class);
+	private static final String UPDATE_PROJECT = "UPDATE project SET name = :name, description = :description, "
+						     + "visibility = :visibility, version = :version "
+						     + "WHERE id = :id AND COALESCE(version, 0) = :expectedVersion AND user_id = :ownerId";
+	// Length of the name and description columns
+	private static final int MAXIMUM_TEXT_LENGTH = 255;
+	private static final int CLOSE_ATTEMPTS = 3;
+	private static final long CLOSE_RETRY_DELAY_MILLIS = 1000;
+	
+	private final Map<Integer, PendingModification> pendingModifications = new ConcurrentHashMap<>();
+	// Flushes never overlap, so that a Project is never written twice from the same version
+	private final Object flushLock = new Object();
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final ApplicationEventPublisher eventPublisher;
+	private final ScheduledExecutorService writer;
+	private final long maximumStalenessNanos;
+	private final int maximumPending;
+	private final Counter coalescedModifications;
+	private final Counter writtenModifications;
+	private final Counter droppedModifications;
+	private final Counter rejectedModifications;
+	
+	/**
+	 * @param jdbcTemplate Template the batches of UPDATEs are sent with
+	 * @param transactionManager Transaction manager every flush runs with
+	 * @param eventPublisher Publishes every Project that has been written, once its transaction has been committed
+	 * and before it leaves the buffer
+	 * @param meterRegistry Registry of the metrics of the buffer
+	 * @param flushInterval Time between two flushes of the background writer
+	 * @param maximumStaleness Time after which a buffered Project is written before it is modified any further
+	 * @param maximumPending Maximum number of Projects buffered at a time
+	 */
+	@Autowired
+	ProjectWriteBehindBuffer(NamedParameterJdbcTemplate jdbcTemplate, 
+				 PlatformTransactionManager transactionManager,
+				 ApplicationEventPublisher eventPublisher, 
+				 MeterRegistry meterRegistry,
+				 @Value("${project.write-behind.flush-interval:100ms}") Duration flushInterval,
+				 @Value("${project.write-behind.maximum-staleness:1s}") Duration maximumStaleness,
+				 @Value("${project.write-behind.maximum-pending:10000}") int maximumPending) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.eventPublisher = eventPublisher;
+		this.maximumStalenessNanos = maximumStaleness.toNanos();
+		this.maximumPending = maximumPending;
+		this.coalescedModifications = Counter.builder("project.write-behind.modifications")
+						     .description("Buffered modifications replaced by a later one before being written")
+						     .tag("outcome", "coalesced")
+						     .register(meterRegistry);
+		this.writtenModifications = Counter.builder("project.write-behind.modifications")
+						   .description("Buffered modifications written to the database")
+						   .tag("outcome", "written")
+						   .register(meterRegistry);
+		this.droppedModifications = Counter.builder("project.write-behind.modifications")
+						   .description("Buffered modifications dropped since they no longer applied")
+						   .tag("outcome", "dropped")
+						   .register(meterRegistry);
+		this.rejectedModifications = Counter.builder("project.write-behind.modifications")
+						    .description("Buffered modifications dropped since the database rejected them")
+						    .tag("outcome", "rejected")
+						    .register(meterRegistry);
+		Gauge.builder("project.write-behind.pending", pendingModifications, Map::size)
+		     .description("Projects whose modifications have not been written yet")
+		     .register(meterRegistry);
+		
+		this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "project-write-behind");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long flushIntervalNanos = flushInterval.toNanos();
+		writer.scheduleWithFixedDelay(this::flushAll, flushIntervalNanos, flushIntervalNanos, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Buffers a modification of a Project
+	 * 
+	 * @param id Id of the Project to be modified
+	 * @param ownerId Id of the User modifying the Project, which has to own it when it is written
+	 * @param loader Loads the current details of the Project from the database, returning null if it is not present,
+	 * called if the Project is not buffered yet
+	 * @param modification Turns the latest details of the Project, null if it is not present, into its modified
+	 * details, or returns null if the modification has to be written straight away
+	 * @return Modified details of the Project, or null if it has not been buffered and has to be written straight away
+	 * @throws IllegalArgumentException if the modified name or description do not fit their columns
+	 */
+	ProjectSummary modify(Integer id, Integer ownerId, Supplier<ProjectSummary> loader, UnaryOperator<ProjectSummary> modification) {
+		while (true) {
+			PendingModification current = pendingModifications.get(id);
+			
+			if (current != null && System.nanoTime() - current.bufferedTime > maximumStalenessNanos) {
+				flush(List.of(id));
+				continue;
+			}
+			
+			if (current == null && pendingModifications.size() >= maximumPending) {
+				return null;
+			}
+			
+			ProjectSummary latest = (current == null) ? loader.get() : current.project;
+			ProjectSummary modified = modification.apply(latest);
+			
+			if (modified == null) {
+				return null;
+			}
+			
+			checkColumns(modified);
+			
+			if (current == null) {
+				PendingModification next = new PendingModification(version(latest), ownerId, modified, System.nanoTime());
+				
+				if (pendingModifications.putIfAbsent(id, next) == null) {
+					return modified;
+				}
+			} else if (pendingModifications.replace(id, current, current.modifiedTo(modified, ownerId))) {
+				coalescedModifications.increment();
+				return modified;
+			}
+			
+			// Modified or written concurrently, the modification is applied again to the new latest details
+		}
+	}
+	
+	/**
+	 * @param id Id of a Project
+	 * @return Latest details of the Project if it has modifications that have not been written yet, null otherwise
+	 */
+	ProjectSummary findPending(Integer id) {
+		PendingModification pending = pendingModifications.get(id);
+		return (pending == null) ? null : pending.project;
+	}
+	
+	/**
+	 * Writes the pending modifications of some Projects straight away, before they are modified in another way
+	 * 
+	 * @param ids Ids of the Projects
+	 */
+	void flush(Collection<Integer> ids) {
+		List<Integer> pendingIds = new ArrayList<>();
+		
+		for (Integer id : ids) {
+			if (pendingModifications.containsKey(id)) {
+				pendingIds.add(id);
+			}
+		}
+		
+		if (!pendingIds.isEmpty()) {
+			write(pendingIds);
+		}
+	}
+	
+	/**
+	 * Stops the background writer and writes every pending modification before the application shuts down
+	 * <p>
+	 * Writing is attempted a few times. Modifications that still cannot be written are logged along with the
+	 * details of their Project, so that they can be applied by hand, and nothing is thrown.
+	 */
+	@Override
+	public void destroy() {
+		writer.shutdown();
+		
+		try {
+			writer.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		
+		int pending = pendingModifications.size();
+		
+		for (int attempt = 1; attempt <= CLOSE_ATTEMPTS; attempt++) {
+			try {
+				write(new ArrayList<>(pendingModifications.keySet()));
+				LOGGER.info("Wrote the pending modifications of {} projects on shutdown", pending);
+				return;
+			} catch (RuntimeException ex) {
+				LOGGER.error("Pending project modifications could not be written on shutdown, attempt {} of {}", 
+					     attempt, CLOSE_ATTEMPTS, ex);
+			}
+			
+			if (attempt < CLOSE_ATTEMPTS && !pause(CLOSE_RETRY_DELAY_MILLIS)) {
+				break;
+			}
+		}
+		
+		pendingModifications.forEach((id, unwritten) -> 
+			LOGGER.error("Unwritten modification of project {} from version {} by user {}: {}", 
+				     id, unwritten.expectedVersion, unwritten.ownerId, unwritten.project));
+	}
+	
+	private static boolean pause(long millis) {
+		try {
+			Thread.sleep(millis);
+			return true;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+	
+	private void flushAll() {
+		try {
+			if (!pendingModifications.isEmpty()) {
+				write(new ArrayList<>(pendingModifications.keySet()));
+			}
+		} catch (RuntimeException ex) {
+			// Left pending, and written again by the next flush
+			LOGGER.error("Pending project modifications could not be written", ex);
+		}
+	}
+	
+	private void write(List<Integer> ids) {
+		synchronized (flushLock) {
+			List<Integer> writtenIds = new ArrayList<>(ids.size());
+			List<PendingModification> written = new ArrayList<>(ids.size());
+			
+			for (Integer id : ids) {
+				PendingModification pending = pendingModifications.get(id);
+				if (pending != null) {
+					writtenIds.add(id);
+					written.add(pending);
+				}
+			}
+			
+			if (written.isEmpty()) {
+				return;
+			}
+			
+			SqlParameterSource[] parameters = new SqlParameterSource[written.size()];
+			for (int i = 0; i < parameters.length; i++) {
+				PendingModification pending = written.get(i);
+				parameters[i] = new MapSqlParameterSource().addValue("id", writtenIds.get(i))
+									   .addValue("name", pending.project.getName())
+									   .addValue("description", pending.project.getDescription())
+									   .addValue("visibility", pending.project.getVisibility().name())
+									   .addValue("version", pending.project.getVersion())
+									   .addValue("expectedVersion", pending.expectedVersion)
+									   .addValue("ownerId", pending.ownerId);
+			}
+			
+			int[] updatedRows;
+			
+			try {
+				updatedRows = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(UPDATE_PROJECT, parameters));
+			} catch (DataIntegrityViolationException ex) {
+				// The whole batch has been rolled back, written again one Project at a time only the rejected ones are lost
+				LOGGER.warn("Batch of {} pending project modifications was rejected, writing them one at a time", written.size(), ex);
+				writeOneAtATime(writtenIds, written, parameters);
+				return;
+			}
+			
+			for (int i = 0; i < updatedRows.length; i++) {
+				settle(writtenIds.get(i), written.get(i), updatedRows[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Writes every modification in a transaction of its own, settling each one as soon as it has been written,
+	 * so that the ones already written are not written again if a later one fails for another reason
+	 */
+	private void writeOneAtATime(List<Integer> ids, List<PendingModification> written, SqlParameterSource[] parameters) {
+		for (int i = 0; i < parameters.length; i++) {
+			SqlParameterSource projectParameters = parameters[i];
+			int updatedRows;
+				
+			try {
+				updatedRows = transactionTemplate.execute(status -> jdbcTemplate.update(UPDATE_PROJECT, projectParameters));
+			} catch (DataIntegrityViolationException ex) {
+				// Later modifications were made on top of the rejected one, so they are dropped along with it
+				pendingModifications.remove(ids.get(i));
+				rejectedModifications.increment();
+				LOGGER.error("Dropped the pending modification of project {}, the database rejected it: {}", 
+					     ids.get(i), written.get(i).project, ex);
+				continue;
+			}
+			
+			settle(ids.get(i), written.get(i), updatedRows);
+		}
+	}
+	
+	private void settle(Integer id, PendingModification pending, int updatedRows) {
+		if (updatedRows == 0) {
+			// Later modifications were made on top of the dropped one, so they are dropped along with it
+			pendingModifications.remove(id);
+			droppedModifications.increment();
+			LOGGER.warn("Dropped the pending modification of project {}, it has been deleted or modified since", id);
+			return;
+		}
+		
+		writtenModifications.increment();
+		eventPublisher.publishEvent(ProjectChangeEvent.saved(pending.project));
+		// Modifications made while it was being written are kept, on top of the version just written
+		pendingModifications.computeIfPresent(id, (key, current) -> (current == pending) ? null : current.writtenUpTo(pending));
+	}
+	
+	private static void checkColumns(ProjectSummary project) {
+		if (project.getName() == null || project.getName().length() > MAXIMUM_TEXT_LENGTH) {
+			throw new IllegalArgumentException("Project name cannot be null or longer than " + MAXIMUM_TEXT_LENGTH + " characters");
+		}
+		
+		if (project.getDescription() != null && project.getDescription().length() > MAXIMUM_TEXT_LENGTH) {
+			throw new IllegalArgumentException("Project description cannot be longer than " + MAXIMUM_TEXT_LENGTH + " characters");
+		}
+	}
+	
+	private static long version(ProjectSummary project) {
+		return (project == null || project.getVersion() == null) ? 0 : project.getVersion();
+	}
+	
+	/**
+	 * Latest details of a buffered Project, along with the version it has in the database
+	 */
+	private static final class PendingModification {
+		
+		private final long expectedVersion;
+		private final Integer ownerId;
+		private final ProjectSummary project;
+		private final long bufferedTime;
+		
+		private PendingModification(long expectedVersion, Integer ownerId, ProjectSummary project, long bufferedTime) {
+			this.expectedVersion = expectedVersion;
+			this.ownerId = ownerId;
+			this.project = project;
+			this.bufferedTime = bufferedTime;
+		}
+		
+		private PendingModification modifiedTo(ProjectSummary modified, Integer modifyingOwnerId) {
+			return new PendingModification(expectedVersion, modifyingOwnerId, modified, bufferedTime);
+		}
+		
+		private PendingModification writtenUpTo(PendingModification written) {
+			return new PendingModification(version(written.project), ownerId, project, System.nanoTime());
+		}
+	}
+}
@@ -0,0 +1,479 @@
+package org.lawcubator.assignment.userRegistrationBackend.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectCollectionVersion;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.lawcubator.assignment.userRegistrationBackend.model.Visibility;
+import org.lawcubator.assignment.userRegistrationBackend.repository.ProjectRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-memory view of every {@code Public} Project, so that the Projects of other Users are listed without
+ * querying the database
+ * <p>
+ * The view is an immutable array of the Projects ordered by Id, along with their version, and every change
+ * replaces it as a whole: readers never lock, and never see a change half applied. The changes of a transaction
+ * are applied together once it has been committed, and changes arriving while the view is being copied are
+ * applied together with the next copy, so that a copy is shared by as many changes as possible. The version of
+ * the view is updated with the hashes of the changed Projects only. Changes of a Project are applied in order of
+ * its version, so that an older version never replaces a newer one, and Projects made {@code Private} or deleted
+ * in the last {@value #HIDDEN_PROJECTS_EXPIRY_MINUTES} minutes are not added back by late changes.
+ * <p>
+ * The view is loaded by a background thread once the application is ready, and then reconciled with the
+ * database every {@code project.public-snapshot.reconcile-interval}, so that any change that has been missed is
+ * eventually corrected.
+ * Changes applied while the database is being read override what has been read. Until the view has been
+ * loaded, Projects have to be read from the database.
+ */
+@Component
+final class PublicProjectSnapshot implements DisposableBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PublicProjectSnapshot.class);
+	private static final long HIDDEN_PROJECTS_EXPIRY_MINUTES = 10;
+	private static final ProjectSummary[] NO_PROJECTS = new ProjectSummary[0];
+	
+	private final Queue<ProjectChangeEvent> pendingChanges = new ConcurrentLinkedQueue<>();
+	// Changes are applied one batch at a time, every batch copying the view once
+	private final Object applyLock = new Object();
+	// Latest versions of the Projects that are no longer Public, Long.MAX_VALUE once deleted
+	private final Cache<Integer, Long> hiddenVersions = Caffeine.newBuilder()
+								    .expireAfterWrite(Duration.ofMinutes(HIDDEN_PROJECTS_EXPIRY_MINUTES))
+								    .build();
+	private final ProjectRepository projectRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final ScheduledExecutorService reconciler;
+	private final long reconcileIntervalMillis;
+	private final Counter driftedProjects;
+	// Changes applied since the database started being read, null otherwise, guarded by applyLock
+	private Map<Integer, ProjectSummary> changedWhileReading;
+	private volatile View view;
+	
+	/**
+	 * @param projectRepository Repository the Projects are read from
+	 * @param transactionManager Transaction manager the Projects are read with
+	 * @param meterRegistry Registry of the metrics of the view
+	 * @param reconcileInterval Time between two reconciliations with the database
+	 */
+	@Autowired
+	PublicProjectSnapshot(ProjectRepository projectRepository, 
+			      PlatformTransactionManager transactionManager,
+			      MeterRegistry meterRegistry, 
+			      @Value("${project.public-snapshot.reconcile-interval:5m}") Duration reconcileInterval) {
+		this.projectRepository = projectRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+		this.reconcileIntervalMillis = reconcileInterval.toMillis();
+		this.driftedProjects = Counter.builder("project.public-snapshot.drifted")
+					      .description("Public Projects corrected by a reconciliation with the database")
+					      .register(meterRegistry);
+		Gauge.builder("project.public-snapshot.projects", this, snapshot -> (snapshot.view == null) ? 0 : snapshot.view.projects.length)
+		     .description("Public Projects held in memory")
+		     .register(meterRegistry);
+		
+		this.reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "public-projects-reconciler");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * Starts loading the view once the application is ready, and reconciling it with the database afterwards
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		reconciler.scheduleWithFixedDelay(this::reconcile, 0, reconcileIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Stops reconciling the view with the database
+	 */
+	@Override
+	public void destroy() {
+		reconciler.shutdownNow();
+	}
+	
+	boolean isLoaded() {
+		return view != null;
+	}
+	
+	/**
+	 * @param currentUsername User who is requesting the Projects
+	 * @param maximumResults Maximum number of Projects to return
+	 * @return {@code Public} Projects owned by all the Users except the requesting User, ordered by Id
+	 */
+	List<ProjectSummary> findAllOfOtherUsers(String currentUsername, int maximumResults) {
+		ProjectSummary[] projects = view.projects;
+		List<ProjectSummary> projectsOfOtherUsers = new ArrayList<>(Math.min(maximumResults, projects.length));
+		
+		for (int i = 0; i < projects.length && projectsOfOtherUsers.size() < maximumResults; i++) {
+			if (!projects[i].getOwnerUsername().equals(currentUsername)) {
+				projectsOfOtherUsers.add(projects[i]);
+			}
+		}
+		
+		return projectsOfOtherUsers;
+	}
+	
+	/**
+	 * @return Version of every {@code Public} Project, which changes whenever any of them changes
+	 */
+	ProjectCollectionVersion getVersion() {
+		return view.version;
+	}
+	
+	/**
+	 * Applies a change made to a Project to the view once its transaction has been committed, along with the
+	 * other changes of the transaction, or right away if it was made outside of a transaction
+	 * 
+	 * @param event Change made to the Project, ignored if the view already holds the same or a newer version of
+	 * the Project, or if the Project has since been deleted
+	 */
+	@EventListener
+	public void applyOnceCommitted(ProjectChangeEvent event) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive() ||
+			!TransactionSynchronizationManager.isActualTransactionActive()) {
+			apply(List.of(event));
+			return;
+		}
+		
+		TransactionChanges transactionChanges = (TransactionChanges) TransactionSynchronizationManager.getResource(this);
+		
+		if (transactionChanges == null) {
+			transactionChanges = new TransactionChanges();
+			TransactionSynchronizationManager.bindResource(this, transactionChanges);
+			TransactionSynchronizationManager.registerSynchronization(transactionChanges);
+		}
+		
+		transactionChanges.events.add(event);
+	}
+	
+	/**
+	 * Applies changes made to Projects to the view
+	 * 
+	 * @param events Changes made to the Projects, every one ignored if the view already holds the same or a newer
+	 * version of its Project, or if its Project has since been deleted
+	 */
+	void apply(Collection<ProjectChangeEvent> events) {
+		pendingChanges.addAll(events);
+		
+		synchronized (applyLock) {
+			// Applied along with the changes of another thread in the meantime
+			if (pendingChanges.isEmpty()) {
+				return;
+			}
+			
+			View current = view;
+			NavigableMap<Integer, ProjectSummary> changes = new TreeMap<>();
+			ProjectChangeEvent change;
+			
+			while ((change = pendingChanges.poll()) != null) {
+				collect(change, current, changes);
+			}
+			
+			if (changes.isEmpty()) {
+				return;
+			}
+			
+			if (changedWhileReading != null) {
+				changedWhileReading.putAll(changes);
+			}
+			
+			if (current != null) {
+				view = merge(current, changes);
+			}
+		}
+	}
+	
+	/**
+	 * Adds a change to the ones to be applied, mapping the Id of the Project to its latest details, or to null if
+	 * it has to leave the view
+	 */
+	private void collect(ProjectChangeEvent change, View current, Map<Integer, ProjectSummary> changes) {
+		Integer id = change.getProjectId();
+		
+		if (change.getType() == ProjectChangeEvent.Type.REMOVED) {
+			hiddenVersions.put(id, Long.MAX_VALUE);
+			changes.put(id, null);
+			return;
+		}
+		
+		ProjectSummary project = change.getProject();
+		long version = version(project);
+		Long hiddenVersion = hiddenVersions.getIfPresent(id);
+		
+		if (hiddenVersion != null && hiddenVersion >= version) {
+			return;
+		}
+		
+		ProjectSummary latest = findLatest(id, current, changes);
+		
+		if (latest != null && version(latest) >= version) {
+			return;
+		}
+		
+		if (project.getVisibility() == Visibility.PUBLIC) {
+			changes.put(id, project);
+		} else {
+			hiddenVersions.put(id, version);
+			changes.put(id, null);
+		}
+	}
+	
+	private ProjectSummary findLatest(Integer id, View current, Map<Integer, ProjectSummary> changes) {
+		if (changes.containsKey(id)) {
+			return changes.get(id);
+		}
+		
+		if (changedWhileReading != null && changedWhileReading.containsKey(id)) {
+			return changedWhileReading.get(id);
+		}
+		
+		return (current == null) ? null : find(current.projects, id);
+	}
+	
+	private void reconcile() {
+		long startTime = System.nanoTime();
+		List<ProjectSummary> projects = new ArrayList<>();
+		
+		synchronized (applyLock) {
+			changedWhileReading = new HashMap<>();
+		}
+		
+		try {
+			// Streaming queries need a transaction that keeps the connection open until the last row has been read
+			transactionTemplate.executeWithoutResult(status -> {
+				try (Stream<ProjectSummary> publicProjects = projectRepository.streamPublicProjects()) {
+					publicProjects.forEach(projects::add);
+				}
+			});
+		} catch (RuntimeException ex) {
+			synchronized (applyLock) {
+				changedWhileReading = null;
+			}
+			
+			// Retried by the next reconciliation
+			LOGGER.error("Public projects could not be read from the database", ex);
+			return;
+		}
+		
+		synchronized (applyLock) {
+			View current = view;
+			View reconciled = merge(new View(projects.toArray(NO_PROJECTS)), new TreeMap<>(changedWhileReading));
+			changedWhileReading = null;
+			view = reconciled;
+			
+			if (current == null) {
+				LOGGER.info("Public projects loaded with {} projects in {} ms", reconciled.projects.length,
+					    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+				return;
+			}
+			
+			int drifted = countDifferences(current.projects, reconciled.projects);
+			
+			if (drifted > 0) {
+				driftedProjects.increment(drifted);
+				LOGGER.warn("Corrected {} public projects that had drifted from the database", drifted);
+			}
+		}
+	}
+	
+	/**
+	 * Copies the view with the changes applied, the Projects in between two changes in a single copy
+	 * 
+	 * @param current View the changes are applied to
+	 * @param changes Latest details of the changed Projects by their Id, or null for the ones leaving the view
+	 * @return View holding the Projects with the changes applied, keeping the newest version of every Project
+	 */
+	private static View merge(View current, NavigableMap<Integer, ProjectSummary> changes) {
+		ProjectSummary[] projects = current.projects;
+		ProjectSummary[] merged = new ProjectSummary[projects.length + changes.size()];
+		long firstHashSum = current.version.getFirstHashSum();
+		long secondHashSum = current.version.getSecondHashSum();
+		int size = 0;
+		int copied = 0;
+		
+		for (Map.Entry<Integer, ProjectSummary> change : changes.entrySet()) {
+			int index = indexOf(projects, copied, change.getKey());
+			int position = (index >= 0) ? index : -index - 1;
+			System.arraycopy(projects, copied, merged, size, position - copied);
+			size += position - copied;
+			copied = position;
+			ProjectSummary changed = change.getValue();
+			
+			if (index >= 0) {
+				ProjectSummary previous = projects[copied++];
+				
+				if (changed != null && version(changed) < version(previous)) {
+					merged[size++] = previous;
+					continue;
+				}
+				
+				firstHashSum -= firstHash(previous);
+				secondHashSum -= secondHash(previous);
+			}
+			
+			if (changed != null) {
+				merged[size++] = changed;
+				firstHashSum += firstHash(changed);
+				secondHashSum += secondHash(changed);
+			}
+		}
+		
+		System.arraycopy(projects, copied, merged, size, projects.length - copied);
+		size += projects.length - copied;
+		ProjectSummary[] mergedProjects = (size == merged.length) ? merged : Arrays.copyOf(merged, size);
+		return new View(mergedProjects, new ProjectCollectionVersion((long) size, firstHashSum, secondHashSum));
+	}
+	
+	/**
+	 * @return Number of Projects present in only one of both arrays, or at different versions
+	 */
+	private static int countDifferences(ProjectSummary[] previous, ProjectSummary[] next) {
+		int differences = 0;
+		int i = 0;
+		int j = 0;
+		
+		while (i < previous.length && j < next.length) {
+			int comparison = previous[i].getId().compareTo(next[j].getId());
+			
+			if (comparison == 0) {
+				if (version(previous[i]) != version(next[j])) {
+					differences++;
+				}
+				i++;
+				j++;
+			} else if (comparison < 0) {
+				differences++;
+				i++;
+			} else {
+				differences++;
+				j++;
+			}
+		}
+		
+		return differences + (previous.length - i) + (next.length - j);
+	}
+	
+	private static ProjectSummary find(ProjectSummary[] projects, Integer id) {
+		int index = indexOf(projects, 0, id);
+		return (index >= 0) ? projects[index] : null;
+	}
+	
+	/**
+	 * @param projects Projects ordered by Id
+	 * @param from Index the search starts from
+	 * @param id Id of the Project to look for
+	 * @return Index of the Project, or {@code -(insertion point) - 1} if it is not present, as
+	 * {@link Arrays#binarySearch(Object[], Object)} does
+	 */
+	private static int indexOf(ProjectSummary[] projects, int from, Integer id) {
+		int low = from;
+		int high = projects.length - 1;
+		
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = projects[middle].getId().compareTo(id);
+			
+			if (comparison == 0) {
+				return middle;
+			} else if (comparison < 0) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		
+		return -low - 1;
+	}
+	
+	private static long version(ProjectSummary project) {
+		return (project.getVersion() == null) ? 0 : project.getVersion();
+	}
+	
+	private static long firstHash(ProjectSummary project) {
+		return ProjectCollectionVersion.firstHash(project.getId(), project.getVersion());
+	}
+	
+	private static long secondHash(ProjectSummary project) {
+		return ProjectCollectionVersion.secondHash(project.getId(), project.getVersion());
+	}
+	
+	/**
+	 * Immutable array of the {@code Public} Projects ordered by Id, along with their version
+	 */
+	private static final class View {
+		
+		private final ProjectSummary[] projects;
+		private final ProjectCollectionVersion version;
+		
+		private View(ProjectSummary[] projects) {
+			long firstHashSum = 0;
+			long secondHashSum = 0;
+			
+			for (ProjectSummary project : projects) {
+				firstHashSum += firstHash(project);
+				secondHashSum += secondHash(project);
+			}
+			
+			this.projects = projects;
+			this.version = new ProjectCollectionVersion((long) projects.length, firstHashSum, secondHashSum);
+		}
+		
+		private View(ProjectSummary[] projects, ProjectCollectionVersion version) {
+			this.projects = projects;
+			this.version = version;
+		}
+	}
+	
+	/**
+	 * Changes made within a transaction, applied to the view together once it has been committed
+	 */
+	private final class TransactionChanges implements TransactionSynchronization {
+		
+		private final List<ProjectChangeEvent> events = new ArrayList<>();
+		
+		@Override
+		public void afterCommit() {
+			apply(events);
+		}
+		
+		@Override
+		public void afterCompletion(int status) {
+			TransactionSynchronizationManager.unbindResourceIfPossible(PublicProjectSnapshot.this);
+		}
+	}
+}
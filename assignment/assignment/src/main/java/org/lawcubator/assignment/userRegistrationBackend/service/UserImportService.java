@@ -0,0 +1,316 @@
+package org.lawcubator.assignment.userRegistrationBackend.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Session;
+import org.lawcubator.assignment.userRegistrationBackend.model.User;
+import org.lawcubator.assignment.userRegistrationBackend.model.UserImportReport;
+import org.lawcubator.assignment.userRegistrationBackend.security.password.PooledPasswordEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Service Implementation that imports Users in bulk from a file.
+ * <p>
+ * The file is either a CSV file with a {@code username,password} row per User, or a newline delimited JSON file
+ * (ending with {@code .ndjson} or {@code .jsonl}) with a {@code {"username": ..., "password": ...}} object per line.
+ * It is read as a stream and imported in chunks: the usernames of a whole chunk are checked for uniqueness with
+ * one query, then the passwords of the valid Users are hashed in parallel and the Users are inserted in a single
+ * transaction using batched inserts.
+ * <p>
+ * Passwords are hashed with the strength of bulk hashes, raised the next time their User logs in. Passwords can
+ * also be given as BCrypt hashes prefixed with {@code {bcrypt}}, e.g. when Users are migrated from another system,
+ * which are saved as they are without hashing them again.
+ * No JSON Web Token is generated for imported Users.
+ */
+@Service
+public class UserImportService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(UserImportService.class);
+	private static final String ENCODED_PASSWORD_PREFIX = "{bcrypt}";
+	
+	private final UserService userService;
+	private final PooledPasswordEncoder passwordEncoder;
+	private final EntityManager entityManager;
+	private final TransactionTemplate transactionTemplate;
+	private final ObjectMapper objectMapper;
+	private final int chunkSize;
+	
+	@Autowired
+	public UserImportService(UserService userService,
+				 PooledPasswordEncoder passwordEncoder,
+				 EntityManager entityManager,
+				 PlatformTransactionManager transactionManager,
+				 ObjectMapper objectMapper,
+				 @Value("${user.import.chunk-size:1000}") int chunkSize) {
+		this.userService = userService;
+		this.passwordEncoder = passwordEncoder;
+		this.entityManager = entityManager;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.objectMapper = objectMapper;
+		this.chunkSize = chunkSize;
+	}
+	
+	/**
+	 * Imports every User of the given file into the database
+	 * <p>
+	 * Rows that cannot be imported, because they are malformed or their usernames have already been taken,
+	 * are written to the rejected rows file as {@code line number<TAB>reason<TAB>row}.
+	 * 
+	 * @param usersFile File containing the Users to be imported
+	 * @param rejectedRowsFile File the rejected rows are written to
+	 * @return Number of imported Users and rejected rows
+	 * @throws IOException if the file could not be read or the rejected rows could not be written
+	 */
+	public UserImportReport importUsers(Path usersFile, Path rejectedRowsFile) throws IOException {
+		String fileName = usersFile.getFileName().toString();
+		boolean ndjson = fileName.endsWith(".ndjson") || fileName.endsWith(".jsonl");
+		long startTime = System.nanoTime();
+		
+		try (BufferedReader reader = Files.newBufferedReader(usersFile, StandardCharsets.UTF_8);
+		     BufferedWriter rejectedRows = Files.newBufferedWriter(rejectedRowsFile, StandardCharsets.UTF_8)) {
+			ImportRun run = new ImportRun(rejectedRows, startTime);
+			List<ImportRow> chunk = new ArrayList<>(chunkSize);
+			String line;
+			long lineNumber = 0;
+			
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				
+				if (line.isBlank() || (lineNumber == 1 && !ndjson && line.trim().equalsIgnoreCase("username,password"))) {
+					continue;
+				}
+				
+				ImportRow row = new ImportRow(lineNumber, line);
+				String error = ndjson ? parseJson(row) : parseCsv(row);
+				
+				if (error == null && row.password.startsWith(ENCODED_PASSWORD_PREFIX) && !passwordEncoder.isEncoded(row.password)) {
+					error = "Password starts with " + ENCODED_PASSWORD_PREFIX + " but is not a BCrypt hash";
+				}
+				
+				if (error != null) {
+					run.reject(row, error);
+					continue;
+				}
+				
+				chunk.add(row);
+				
+				if (chunk.size() == chunkSize) {
+					importChunk(run, chunk);
+					chunk.clear();
+				}
+			}
+			
+			if (!chunk.isEmpty()) {
+				importChunk(run, chunk);
+			}
+			
+			UserImportReport report = new UserImportReport(run.importedUsers, run.rejectedRows,
+								       Duration.ofNanos(System.nanoTime() - startTime), rejectedRowsFile);
+			LOGGER.info("Import of {} finished: {}", usersFile, report);
+			return report;
+		}
+	}
+	
+	private void importChunk(ImportRun run, List<ImportRow> chunk) throws IOException {
+		List<ImportRow> validRows = new ArrayList<>(chunk.size());
+		
+		for (ImportRow row : chunk) {
+			if (!run.usernames.add(row.username)) {
+				run.reject(row, "Username is repeated in the file");
+			} else {
+				validRows.add(row);
+			}
+		}
+		
+		if (!validRows.isEmpty()) {
+			validRows = rejectTakenUsernames(run, validRows);
+		}
+		
+		if (!validRows.isEmpty()) {
+			insert(run, validRows);
+		}
+		
+		LOGGER.info("Imported {} users, rejected {} rows so far ({} users/s)", run.importedUsers, run.rejectedRows, run.usersPerSecond());
+	}
+	
+	private List<ImportRow> rejectTakenUsernames(ImportRun run, List<ImportRow> rows) throws IOException {
+		List<String> usernames = new ArrayList<>(rows.size());
+		
+		for (ImportRow row : rows) {
+			usernames.add(row.username);
+		}
+		
+		Set<String> takenUsernames = userService.findExistingUsernames(usernames);
+		
+		if (takenUsernames.isEmpty()) {
+			return rows;
+		}
+		
+		List<ImportRow> validRows = new ArrayList<>(rows.size());
+		
+		for (ImportRow row : rows) {
+			if (takenUsernames.contains(row.username)) {
+				run.reject(row, "Username has already been taken");
+			} else {
+				validRows.add(row);
+			}
+		}
+		
+		return validRows;
+	}
+	
+	private void insert(ImportRun run, List<ImportRow> rows) throws IOException {
+		List<User> usersToBeSaved = new ArrayList<>(rows.size());
+		
+		for (ImportRow row : rows) {
+			usersToBeSaved.add(new User(row.username, row.password));
+		}
+		
+		try {
+			transactionTemplate.executeWithoutResult(status -> {
+				// The whole chunk is sent to the database as a single JDBC batch instead of the default sized ones
+				entityManager.unwrap(Session.class).setJdbcBatchSize(usersToBeSaved.size());
+				userService.saveUsers(usersToBeSaved);
+			});
+			run.importedUsers += rows.size();
+		} catch (DataIntegrityViolationException ex) {
+			// Usernames were taken concurrently after they had been checked, the chunk is retried one User at a time
+			for (ImportRow row : rows) {
+				try {
+					// Saved as a batch of one, so that a password given as a hash is not hashed again
+					userService.saveUsers(List.of(new User(row.username, row.password)));
+					run.importedUsers++;
+				} catch (DataIntegrityViolationException e) {
+					run.reject(row, "Username has already been taken");
+				}
+			}
+		}
+	}
+	
+	private String parseCsv(ImportRow row) {
+		List<String> fields = new ArrayList<>(2);
+		StringBuilder field = new StringBuilder();
+		String line = row.line;
+		boolean quoted = false;
+		
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		
+		if (quoted) {
+			return "Unterminated quoted field";
+		}
+		
+		fields.add(field.toString());
+		
+		if (fields.size() != 2) {
+			return "Expected 2 fields but found " + fields.size();
+		}
+		
+		return row.credentials(fields.get(0), fields.get(1));
+	}
+	
+	private String parseJson(ImportRow row) {
+		try {
+			JsonNode user = objectMapper.readTree(row.line);
+			return row.credentials(user.path("username").asText(null), user.path("password").asText(null));
+		} catch (JsonProcessingException ex) {
+			return "Malformed JSON";
+		}
+	}
+	
+	/**
+	 * Single row of the imported file
+	 */
+	private static final class ImportRow {
+		
+		private final long lineNumber;
+		private final String line;
+		private String username;
+		private String password;
+		
+		private ImportRow(long lineNumber, String line) {
+			this.lineNumber = lineNumber;
+			this.line = line;
+		}
+		
+		private String credentials(String username, String password) {
+			if (username == null || password == null || username.trim().isEmpty() || password.trim().isEmpty()) {
+				return "Password or Username cannot be null or empty";
+			}
+			
+			this.username = username;
+			this.password = password;
+			return null;
+		}
+	}
+	
+	/**
+	 * Progress of a single import
+	 */
+	private static final class ImportRun {
+		
+		private final BufferedWriter rejectedRowsWriter;
+		private final long startTime;
+		private final Set<String> usernames = new HashSet<>();
+		private long importedUsers;
+		private long rejectedRows;
+		
+		private ImportRun(BufferedWriter rejectedRowsWriter, long startTime) {
+			this.rejectedRowsWriter = rejectedRowsWriter;
+			this.startTime = startTime;
+		}
+		
+		private void reject(ImportRow row, String reason) throws IOException {
+			rejectedRows++;
+			rejectedRowsWriter.write(row.lineNumber + "\t" + reason + "\t" + row.line);
+			rejectedRowsWriter.newLine();
+		}
+		
+		private long usersPerSecond() {
+			long millis = Math.max(1, Duration.ofNanos(System.nanoTime() - startTime).toMillis());
+			return importedUsers * 1000 / millis;
+		}
+	}
+}
@@ -1,55 +1,381 @@
 package org.lawcubator.assignment.userRegistrationBackend.service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 
 import org.lawcubator.assignment.userRegistrationBackend.model.User;
 import org.lawcubator.assignment.userRegistrationBackend.repository.UserRepository;
+import org.lawcubator.assignment.userRegistrationBackend.security.password.PooledPasswordEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
 /**
  * Service Implementation that loads User specific data. 
+ * <p>
+ * User details loaded for authentication are kept in a bounded cache, so that authenticated requests
+ * do not query the users table every time. Entries are invalidated whenever a User is saved.
+ * <p>
+ * Passwords are hashed before being saved. Requests carrying the password of their User along are checked against
+ * its hash through {@link #matchesPassword(String, String)}, which remembers the outcome for an HMAC of the password
+ * under a random key of the process, so that repeated requests do not pay for a slow hash every time, while the
+ * cached keys cannot be checked against guessed passwords without the key. Hashes found outdated on login, such as
+ * plain text passwords saved before hashing was introduced, are replaced by a fresh hash of the password.
+ * <p>
+ * Usernames that have been taken are tracked by a {@link NameFilter}, loaded once the application is ready, so
+ * that most usernames can be found free without querying the database.
+ * <p>
+ * Public methods are timed under {@code service.calls}. Calls made from within the service itself, such as the
+ * lookup behind a cache miss of {@link #loadUserByUsername(String)}, are not timed separately.
  */
 @Service
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(UserService.class);
+	private static final String PASSWORD_MAC_ALGORITHM = "HmacSHA256";
+	
 	private final UserRepository userRepository;
+	private final PooledPasswordEncoder passwordEncoder;
+	private final AsyncCache<String, UserDetails> userDetailsCache;
+	private final AsyncCache<String, Boolean> verifiedPasswords;
+	private final SecretKeySpec passwordMacKey;
+	private final Counter databaseLookupsAvoided;
+	private final TransactionTemplate transactionTemplate;
+	private final NameFilter usernameFilter;
+	private final Counter usernameLookupsAvoided;
 	
 	@Autowired
-	public UserService(UserRepository userRepository) {
+	public UserService(UserRepository userRepository,
+			   PooledPasswordEncoder passwordEncoder,
+			   PlatformTransactionManager transactionManager,
+			   MeterRegistry meterRegistry,
+			   @Value("${user.details-cache.maximum-size:10000}") long userDetailsCacheMaximumSize,
+			   @Value("${user.details-cache.expire-after-write:10m}") Duration userDetailsCacheExpireAfterWrite,
+			   @Value("${user.password-cache.maximum-size:10000}") long passwordCacheMaximumSize,
+			   @Value("${user.password-cache.expire-after-write:10m}") Duration passwordCacheExpireAfterWrite,
+			   @Value("${user.username-filter.expected-names:1000000}") long usernameFilterExpectedNames,
+			   @Value("${user.username-filter.false-positive-probability:0.01}") double usernameFilterFalsePositiveProbability) {
 		this.userRepository = userRepository;
+		this.passwordEncoder = passwordEncoder;
+		this.userDetailsCache = Caffeine.newBuilder()
+						.maximumSize(userDetailsCacheMaximumSize)
+						.expireAfterWrite(userDetailsCacheExpireAfterWrite)
+						.recordStats()
+						.buildAsync();
+		this.databaseLookupsAvoided = Counter.builder("users.lookups.avoided")
+						     .description("User lookups served without querying the users table")
+						     .tag("source", "cache")
+						     .register(meterRegistry);
+		CaffeineCacheMetrics.monitor(meterRegistry, userDetailsCache.synchronous(), "userDetails");
+		// Keyed by the hash along with the HMAC, so that an entry stops matching as soon as the hash changes
+		this.verifiedPasswords = Caffeine.newBuilder()
+						 .maximumSize(passwordCacheMaximumSize)
+						 .expireAfterWrite(passwordCacheExpireAfterWrite)
+						 .recordStats()
+						 .buildAsync();
+		CaffeineCacheMetrics.monitor(meterRegistry, verifiedPasswords.synchronous(), "verifiedPasswords");
+		byte[] passwordMacKeyBytes = new byte[32];
+		new SecureRandom().nextBytes(passwordMacKeyBytes);
+		this.passwordMacKey = new SecretKeySpec(passwordMacKeyBytes, PASSWORD_MAC_ALGORITHM);
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setReadOnly(true);
+		this.usernameFilter = new NameFilter(usernameFilterExpectedNames, usernameFilterFalsePositiveProbability);
+		this.usernameLookupsAvoided = Counter.builder("users.lookups.avoided")
+						     .description("User lookups served without querying the users table")
+						     .tag("source", "filter")
+						     .register(meterRegistry);
 	}
 	
 	/**
 	 * Registers a new User to the database
+	 * <p>
+	 * The password of the User is replaced by its hash before it is saved.
 	 * 
 	 * @param userToBeSaved A new User to be saved to the database
 	 * @return The User registered with the provided credentials
-	 * @throws DataIntegrityViolationException if the User username and password match with any other User's 
-	 * credentials in the database
+	 * @throws DataIntegrityViolationException if the username had already been taken by any other User
+	 * in the database
 	 */
+	@Timed("service.calls")
 	public User saveUser(User userToBeSaved) {
+		boolean existingUser = userToBeSaved.getId() != null;
+		userToBeSaved.setPassword(passwordEncoder.encode(userToBeSaved.getPassword()));
 		User savedUser = userRepository.save(userToBeSaved);
+		usernameFilter.add(savedUser.getUsername());
+		
+		if (existingUser) {
+			// Credentials of an existing User may have changed, including the username the entry is cached under
+			userDetailsCache.synchronous().invalidateAll();
+		} else {
+			userDetailsCache.synchronous().invalidate(savedUser.getUsername());
+		}
+		
 		return savedUser;
 	}
 	
+	/**
+	 * Registers new Users to the database in a single transaction, using batched inserts
+	 * <p>
+	 * Either all the Users are saved or none of them is. The passwords of the Users are replaced by their hashes
+	 * before they are saved, hashing them in parallel with the strength of bulk hashes, which is raised the next
+	 * time their User logs in. Passwords that already are hashes, prefixed with {@code {bcrypt}}, are saved as
+	 * they are.
+	 * 
+	 * @param usersToBeSaved New Users to be saved to the database
+	 * @return The Users registered with the provided credentials
+	 * @throws DataIntegrityViolationException if the username of any User had already been taken by any other 
+	 * User in the database
+	 */
+	@Timed("service.calls")
+	public List<User> saveUsers(List<User> usersToBeSaved) {
+		List<String> rawPasswords = new ArrayList<>(usersToBeSaved.size());
+		for (User userToBeSaved : usersToBeSaved) {
+			rawPasswords.add(userToBeSaved.getPassword());
+		}
+		
+		List<String> encodedPasswords = passwordEncoder.encodeAll(rawPasswords);
+		for (int i = 0; i < usersToBeSaved.size(); i++) {
+			usersToBeSaved.get(i).setPassword(encodedPasswords.get(i));
+		}
+		
+		List<User> savedUsers = userRepository.saveAll(usersToBeSaved);
+		
+		for (User savedUser : savedUsers) {
+			userDetailsCache.synchronous().invalidate(savedUser.getUsername());
+			usernameFilter.add(savedUser.getUsername());
+		}
+		
+		return savedUsers;
+	}
+	
 	/**
 	 * Locates a user in the database with the given username
 	 * 
 	 * @param username Username of the user that needs to be located
 	 * @return Requested user, or null if the User was not present
 	 */
+	@Timed("service.calls")
 	public User findUserByUsername(String username) {
 		User foundUser = userRepository.findByUsername(username);
 		return foundUser;
 	}
+	
+	/**
+	 * Checks whether a username has already been taken, before a User is saved under it
+	 * <p>
+	 * Usernames that have certainly not been taken are answered from memory. Other usernames are looked up with
+	 * a single query, outside of any transaction. A username found free may still be taken concurrently before
+	 * the User is saved, which the unique constraint of the database catches.
+	 * 
+	 * @param username Username of the User to be saved
+	 * @return true if a User with the same username is present in the database
+	 */
+	@Timed("service.calls")
+	public boolean isUsernameTaken(String username) {
+		if (!usernameFilter.mightContain(username)) {
+			usernameLookupsAvoided.increment();
+			return false;
+		}
+		
+		return userRepository.existsByUsername(username);
+	}
 
+	/**
+	 * Finds which of the given usernames have already been taken by Users present in the database
+	 * 
+	 * @param usernames Usernames that need to be looked up
+	 * @return Usernames that are already present in the database
+	 */
+	@Timed("service.calls")
+	public Set<String> findExistingUsernames(Collection<String> usernames) {
+		Set<String> existingUsernames = userRepository.findExistingUsernames(usernames);
+		return existingUsernames;
+	}
+	
+	/**
+	 * Checks whether a password is the one a hash was computed from
+	 * <p>
+	 * Passwords that have already been verified against the same hash are recognised by their HMAC, without
+	 * computing the slow hash again. Concurrent requests verifying the same password wait for a single
+	 * hash to be computed rather than computing one each, and the hash is computed without holding any lock of
+	 * the cache.
+	 * 
+	 * @param rawPassword Password sent along with a request
+	 * @param encodedPassword Hash of the password of the User, as stored in the database
+	 * @return true if the password matches the hash
+	 * @throws java.util.concurrent.RejectedExecutionException if the password had to be hashed, and too many 
+	 * passwords were being hashed already
+	 */
+	@Timed("service.calls")
+	public boolean matchesPassword(String rawPassword, String encodedPassword) {
+		if (rawPassword == null || encodedPassword == null) {
+			return false;
+		}
+		
+		String key = encodedPassword + " " + mac(rawPassword);
+		CompletableFuture<Boolean> verifying = new CompletableFuture<>();
+		CompletableFuture<Boolean> matches = verifiedPasswords.get(key, (k, executor) -> verifying);
+		
+		if (matches == verifying) {
+			try {
+				verifying.complete(passwordEncoder.matches(rawPassword, encodedPassword));
+			} catch (Throwable ex) {
+				verifying.completeExceptionally(ex);
+				throw ex;
+			}
+		}
+		
+		try {
+			return matches.join();
+		} catch (CompletionException ex) {
+			throw rethrow(ex.getCause());
+		}
+	}
+	
+	private String mac(String rawPassword) {
+		try {
+			// Instances of Mac are not thread safe, creating one is cheap compared to the hash it spares
+			Mac mac = Mac.getInstance(PASSWORD_MAC_ALGORITHM);
+			mac.init(passwordMacKey);
+			return Base64.getEncoder().encodeToString(mac.doFinal(rawPassword.getBytes(StandardCharsets.UTF_8)));
+		} catch (GeneralSecurityException ex) {
+			throw new IllegalStateException(PASSWORD_MAC_ALGORITHM + " is not supported", ex);
+		}
+	}
+	
+	/**
+	 * Replaces the stored hash of the password of a User, once it has been found outdated on login
+	 * 
+	 * @param user Details of the User who has logged in
+	 * @param newPassword New hash of the password of the User
+	 * @return Details of the User along with the new hash
+	 */
 	@Override
+	@Timed("service.calls")
+	public UserDetails updatePassword(UserDetails user, String newPassword) {
+		userRepository.updatePassword(user.getUsername(), newPassword);
+		userDetailsCache.synchronous().invalidate(user.getUsername());
+		return org.springframework.security.core.userdetails.User.withUserDetails(user).password(newPassword).build();
+	}
+	
+	/**
+	 * Loads the details of a User for authentication purposes, from the cache if present
+	 * <p>
+	 * A copy of the cached details is returned every time, since Spring Security erases the credentials of
+	 * the details it has authenticated. Misses are loaded through the cache, outside of its lock, so that
+	 * concurrent misses of the same User wait for a single query, and details invalidated while they are being
+	 * loaded, such as a password hash replaced on login, are never put back once loaded.
+	 * 
+	 * @param username Username of the user that needs to be located
+	 * @return Details of the requested User
+	 * @throws UsernameNotFoundException if the User was not present in the database
+	 */
+	@Override
+	@Timed("service.calls")
 	public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-		User user = findUserByUsername(username);
-		return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(), new ArrayList<>());
+		CompletableFuture<UserDetails> loading = new CompletableFuture<>();
+		CompletableFuture<UserDetails> cachedDetails = userDetailsCache.get(username, (key, executor) -> loading);
+		
+		if (cachedDetails == loading) {
+			try {
+				User user = findUserByUsername(username);
+				UserDetails loadedDetails = (user == null) ? null
+						: new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(), new ArrayList<>());
+				// Completing with null leaves the User out of the cache
+				loading.complete(loadedDetails);
+			} catch (Throwable ex) {
+				loading.completeExceptionally(ex);
+				throw ex;
+			}
+		} else if (cachedDetails.isDone()) {
+			databaseLookupsAvoided.increment();
+		}
+			
+		UserDetails userDetails;
+			
+		try {
+			userDetails = cachedDetails.join();
+		} catch (CompletionException ex) {
+			throw rethrow(ex.getCause());
+		}
+		
+		if (userDetails == null) {
+			throw new UsernameNotFoundException("User not present in the database");
+		}
+		
+		return org.springframework.security.core.userdetails.User.withUserDetails(userDetails).build();
+	}
+	
+	/**
+	 * @return Exception a load has failed with, to be thrown again by the threads that waited for it
+	 */
+	private static RuntimeException rethrow(Throwable cause) {
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		
+		return (RuntimeException) cause;
+	}
+	
+	/**
+	 * Starts loading the username of every User into the {@link NameFilter} once the application is ready,
+	 * on a thread of its own so that the scan does not delay the startup
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void loadUsernameFilter() {
+		Thread loader = new Thread(this::scanUsernames, "username-filter-loader");
+		loader.setDaemon(true);
+		loader.start();
+	}
+	
+	private void scanUsernames() {
+		long startTime = System.nanoTime();
+		
+		try {
+			// Streaming queries need a transaction that keeps the connection open until the last row has been read
+			transactionTemplate.executeWithoutResult(status -> {
+				try (Stream<String> usernames = userRepository.streamAllUsernames()) {
+					usernames.forEach(usernameFilter::add);
+				}
+			});
+		} catch (RuntimeException ex) {
+			LOGGER.error("Username filter could not be loaded, every username will be looked up", ex);
+			return;
+		}
+		
+		usernameFilter.markLoaded();
+		LOGGER.info("Username filter loaded in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
 	}
 }
@@ -0,0 +1,27 @@
+-- Schema of the prod profile, created only where it does not exist yet.
+-- Databases created before it, with identity Ids, no project version and unique passwords, are not upgraded:
+-- start from an empty database and import the Users instead.
+create sequence if not exists user_sequence start with 1 increment by 50;
+create sequence if not exists project_sequence start with 1 increment by 50;
+
+create table if not exists user (
+	id integer not null,
+	username varchar(255) not null,
+	password varchar(255) not null,
+	primary key (id),
+	constraint user_username_unique unique (username)
+);
+
+create table if not exists project (
+	id integer not null,
+	name varchar(255) not null,
+	description varchar(255),
+	visibility varchar(255),
+	version bigint,
+	user_id integer not null,
+	primary key (id),
+	constraint project_name_unique unique (name),
+	constraint project_user_foreign_key foreign key (user_id) references user
+);
+
+create index if not exists project_user_visibility_index on project (user_id, visibility);
@@ -0,0 +1,163 @@
+package org.lawcubator.assignment.userRegistrationBackend.feed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.lawcubator.assignment.userRegistrationBackend.model.Visibility;
+import org.lawcubator.assignment.userRegistrationBackend.repository.ProjectRepository;
+import org.lawcubator.assignment.userRegistrationBackend.service.ProjectChangeEvent;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ProjectEventFeedTest {
+
+	private static final String OWNER = "Username 1";
+	private static final String OTHER_USER = "Username 2";
+	
+	private MeterRegistry meterRegistry;
+	private ProjectEventFeed feed;
+	
+	@AfterEach
+	void destroyFeed() {
+		feed.destroy();
+	}
+	
+	@Test
+	void sendsChangesOfAProjectInOrderOfVersion() throws InterruptedException {
+		createFeed(10);
+		RecordingEmitter emitter = new RecordingEmitter();
+		subscribe(OTHER_USER, emitter);
+		
+		feed.onProjectChange(ProjectChangeEvent.saved(project(1, 2)));
+		feed.onProjectChange(ProjectChangeEvent.saved(project(1, 1)));
+		feed.onProjectChange(ProjectChangeEvent.removed(1, OWNER));
+		feed.onProjectChange(ProjectChangeEvent.saved(project(1, 3)));
+		
+		assertEquals("modified", emitter.nextEventName());
+		assertEquals("removed", emitter.nextEventName());
+		assertEquals(null, emitter.events.poll(100, TimeUnit.MILLISECONDS));
+	}
+	
+	@Test
+	void evictsBlockedSubscriberWithoutHoldingBackTheOthers() throws InterruptedException {
+		createFeed(1);
+		BlockedEmitter blocked = new BlockedEmitter();
+		subscribe(OTHER_USER, blocked);
+		
+		feed.onProjectChange(ProjectChangeEvent.saved(project(1, 0)));
+		assertTrue(blocked.sending.await(10, TimeUnit.SECONDS));
+		
+		RecordingEmitter other = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+			// The first one is buffered, the second one overflows the buffer of the blocked subscriber
+			feed.onProjectChange(ProjectChangeEvent.saved(project(2, 0)));
+			feed.onProjectChange(ProjectChangeEvent.saved(project(3, 0)));
+			
+			RecordingEmitter emitter = new RecordingEmitter();
+			feed.subscribe(OTHER_USER, null, emitter);
+			feed.onProjectChange(ProjectChangeEvent.saved(project(4, 0)));
+			return emitter;
+		});
+		
+		assertEquals("created", other.nextEventName());
+		assertEquals(1, meterRegistry.counter("project.feed.evictions").count());
+		assertEquals(1, blocked.completed.getCount());
+		
+		blocked.release.countDown();
+		
+		assertTrue(blocked.completed.await(10, TimeUnit.SECONDS));
+		assertEquals(1, blocked.sent);
+	}
+	
+	private void createFeed(int subscriberBufferSize) {
+		meterRegistry = new SimpleMeterRegistry();
+		feed = new ProjectEventFeed(mock(ProjectRepository.class), mock(PlatformTransactionManager.class), meterRegistry,
+					    100, subscriberBufferSize, 10, 2, Duration.ofHours(1), Duration.ofHours(1));
+		feed.loadPublicProjects();
+	}
+	
+	/**
+	 * Subscribes once the Ids of the {@code Public} Projects have been loaded
+	 */
+	private void subscribe(String username, SseEmitter emitter) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		
+		while (true) {
+			try {
+				feed.subscribe(username, null, emitter);
+				return;
+			} catch (RejectedExecutionException ex) {
+				assertTrue(System.nanoTime() < deadline, "Feed was not loaded in time");
+				Thread.sleep(10);
+			}
+		}
+	}
+	
+	private static ProjectSummary project(Integer id, long version) {
+		return new ProjectSummary(id, "Project " + id, "Description", Visibility.PUBLIC, OWNER, version);
+	}
+	
+	/**
+	 * Emitter that keeps the names of the events sent through it
+	 */
+	private static final class RecordingEmitter extends SseEmitter {
+		
+		private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+		
+		@Override
+		public void send(SseEventBuilder builder) {
+			String event = builder.build().iterator().next().getData().toString();
+			events.add(event.substring(event.indexOf("event:") + "event:".length(), event.indexOf('\n', event.indexOf("event:"))));
+		}
+		
+		private String nextEventName() throws InterruptedException {
+			String name = events.poll(10, TimeUnit.SECONDS);
+			assertTrue(name != null, "No event was sent in time");
+			return name;
+		}
+	}
+	
+	/**
+	 * Emitter whose client stopped reading: sending blocks while holding the monitor of the emitter, as writing to
+	 * a full socket does
+	 */
+	private static final class BlockedEmitter extends SseEmitter {
+		
+		private final CountDownLatch sending = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final CountDownLatch completed = new CountDownLatch(1);
+		private int sent;
+		
+		@Override
+		public synchronized void send(SseEventBuilder builder) {
+			sending.countDown();
+			
+			try {
+				release.await();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			sent++;
+		}
+		
+		@Override
+		public synchronized void complete() {
+			super.complete();
+			completed.countDown();
+		}
+	}
+}
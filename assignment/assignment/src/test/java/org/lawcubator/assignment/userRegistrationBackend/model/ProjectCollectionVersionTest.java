@@ -0,0 +1,51 @@
+package org.lawcubator.assignment.userRegistrationBackend.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+class ProjectCollectionVersionTest {
+
+	private final JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID()));
+	
+	@Test
+	void computesTheSameHashesAsTheQueries() {
+		long[][] projects = { { 1, 0 }, { 7, 3 }, { Integer.MAX_VALUE, 1_000_000 } };
+		
+		for (long[] project : projects) {
+			String query = "SELECT " + ProjectCollectionVersion.FIRST_HASH + ", " + ProjectCollectionVersion.SECOND_HASH
+				       + " FROM (SELECT " + project[0] + " AS id, CAST(" + project[1] + " AS BIGINT) AS version) project";
+			long[] hashes = jdbcTemplate.queryForObject(query, (row, rowNumber) -> new long[] { row.getLong(1), row.getLong(2) });
+			
+			assertEquals(ProjectCollectionVersion.firstHash((int) project[0], project[1]), hashes[0]);
+			assertEquals(ProjectCollectionVersion.secondHash((int) project[0], project[1]), hashes[1]);
+		}
+	}
+	
+	@Test
+	void treatsMissingVersionAsZero() {
+		assertEquals(ProjectCollectionVersion.firstHash(1, 0L), ProjectCollectionVersion.firstHash(1, null));
+		assertEquals(ProjectCollectionVersion.secondHash(1, 0L), ProjectCollectionVersion.secondHash(1, null));
+	}
+	
+	@Test
+	void changesTagWhenAProjectChanges() {
+		ProjectCollectionVersion before = version(1, 0L, 2, 0L);
+		
+		assertEquals(before.toETag(), version(2, 0L, 1, 0L).toETag());
+		assertNotEquals(before.toETag(), version(1, 1L, 2, 0L).toETag());
+		assertNotEquals(before.toETag(), version(1, 0L, 3, 0L).toETag());
+		assertEquals("c0h0-0", new ProjectCollectionVersion(null, null, null).toETag());
+	}
+	
+	private static ProjectCollectionVersion version(Integer firstId, Long firstVersion, Integer secondId, Long secondVersion) {
+		return new ProjectCollectionVersion(2L,
+						    ProjectCollectionVersion.firstHash(firstId, firstVersion) + ProjectCollectionVersion.firstHash(secondId, secondVersion),
+						    ProjectCollectionVersion.secondHash(firstId, firstVersion) + ProjectCollectionVersion.secondHash(secondId, secondVersion));
+	}
+}
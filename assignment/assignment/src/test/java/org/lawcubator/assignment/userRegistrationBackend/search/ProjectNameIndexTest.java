@@ -0,0 +1,106 @@
+package org.lawcubator.assignment.userRegistrationBackend.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.lawcubator.assignment.userRegistrationBackend.model.Visibility;
+
+class ProjectNameIndexTest {
+
+	private static final String OWNER = "Username 1";
+	private static final String OTHER_USER = "Username 2";
+	
+	private final ProjectNameIndex index = new ProjectNameIndex();
+	
+	@Test
+	void suggestsNamesStartingWithPrefixRegardlessOfCase() {
+		index.put(project(1, "Beta", Visibility.PUBLIC, 0));
+		index.put(project(2, "alpha two", Visibility.PUBLIC, 0));
+		index.put(project(3, "Alpha", Visibility.PUBLIC, 0));
+		index.put(project(4, "Gamma", Visibility.PUBLIC, 0));
+		
+		assertEquals(List.of(3, 2), ids(index.suggest("ALP", OTHER_USER, 10)));
+		assertEquals(List.of(3), ids(index.suggest("al", OTHER_USER, 1)));
+	}
+	
+	@Test
+	void findsRenamedProjectUnderItsNewNameOnly() {
+		index.put(project(1, "Alpha", Visibility.PUBLIC, 0));
+		index.put(project(1, "Beta", Visibility.PUBLIC, 1));
+		
+		assertEquals(List.of(), ids(index.suggest("al", OTHER_USER, 10)));
+		assertEquals(List.of(1), ids(index.suggest("be", OTHER_USER, 10)));
+		assertEquals(1, index.size());
+	}
+	
+	@Test
+	void showsPrivateProjectsToTheirOwnerOnly() {
+		index.put(project(1, "Alpha", Visibility.PUBLIC, 0));
+		index.put(project(2, "Alpha private", Visibility.PRIVATE, 0));
+		
+		assertEquals(List.of(1, 2), ids(index.suggest("alpha", OWNER, 10)));
+		assertEquals(List.of(1), ids(index.suggest("alpha", OTHER_USER, 10)));
+	}
+	
+	@Test
+	void followsVisibilityChanges() {
+		index.put(project(1, "Alpha", Visibility.PUBLIC, 0));
+		index.put(project(1, "Alpha", Visibility.PRIVATE, 1));
+		
+		assertEquals(List.of(), ids(index.suggest("alpha", OTHER_USER, 10)));
+		assertEquals(List.of(1), ids(index.suggest("alpha", OWNER, 10)));
+		
+		index.put(project(1, "Alpha", Visibility.PUBLIC, 2));
+		
+		assertEquals(List.of(1), ids(index.suggest("alpha", OTHER_USER, 10)));
+		assertEquals(List.of(1), ids(index.suggest("alpha", OWNER, 10)));
+	}
+	
+	@Test
+	void ignoresOlderVersion() {
+		index.put(project(1, "Beta", Visibility.PUBLIC, 2));
+		index.put(project(1, "Alpha", Visibility.PUBLIC, 1));
+		
+		assertEquals(List.of(), ids(index.suggest("al", OTHER_USER, 10)));
+		assertEquals(List.of(1), ids(index.suggest("be", OTHER_USER, 10)));
+	}
+	
+	@Test
+	void doesNotAddBackRemovedProject() {
+		index.put(project(1, "Alpha", Visibility.PUBLIC, 0));
+		index.remove(1, OWNER);
+		index.put(project(1, "Alpha", Visibility.PUBLIC, 1));
+		
+		assertEquals(List.of(), ids(index.suggest("al", OTHER_USER, 10)));
+		assertEquals(0, index.size());
+	}
+	
+	@Test
+	void keepsProjectWhenRemovedForAnotherOwner() {
+		index.put(project(1, "Alpha", Visibility.PUBLIC, 0));
+		index.remove(1, OTHER_USER);
+		
+		assertEquals(List.of(1), ids(index.suggest("al", OTHER_USER, 10)));
+	}
+	
+	@Test
+	void ordersNameBeforeTheNamesItIsPrefixOf() {
+		index.put(project(1, "Abc", Visibility.PUBLIC, 0));
+		index.put(project(2, "Ab", Visibility.PUBLIC, 0));
+		index.put(project(3, "Ab c", Visibility.PUBLIC, 0));
+		
+		assertEquals(List.of(2, 3, 1), ids(index.suggest("ab", OTHER_USER, 10)));
+	}
+	
+	private static ProjectSummary project(Integer id, String name, Visibility visibility, long version) {
+		return new ProjectSummary(id, name, "Description", visibility, OWNER, version);
+	}
+	
+	private static List<Integer> ids(List<ProjectSummary> projects) {
+		return projects.stream().map(ProjectSummary::getId).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,127 @@
+package org.lawcubator.assignment.userRegistrationBackend.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.lawcubator.assignment.userRegistrationBackend.model.Visibility;
+
+class ProjectSearchIndexTest {
+
+	private static final String OWNER = "Username 1";
+	private static final String OTHER_USER = "Username 2";
+	
+	private final ProjectSearchIndex index = new ProjectSearchIndex();
+	
+	@Test
+	void findsProjectsContainingEveryWordOfTheQuery() {
+		index.put(project(1, "Red apple", "Fruit", 0));
+		index.put(project(2, "Green apple", "Fruit", 0));
+		index.put(project(3, "Red car", "Vehicle", 0));
+		
+		assertEquals(List.of(1), ids(index.search("apple RED", OTHER_USER, 10)));
+		assertEquals(List.of(), ids(index.search("apple car", OTHER_USER, 10)));
+		assertEquals(List.of(), ids(index.search("unknown", OTHER_USER, 10)));
+	}
+	
+	@Test
+	void ranksNameMatchesAboveDescriptionMatches() {
+		index.put(project(1, "Garden", "Apple trees", 0));
+		index.put(project(2, "Apple", "Garden", 0));
+		
+		assertEquals(List.of(2, 1), ids(index.search("apple", OTHER_USER, 10)));
+	}
+	
+	@Test
+	void showsPrivateProjectsToTheirOwnerOnly() {
+		index.put(project(1, "Apple", "Public", 0));
+		index.put(new ProjectSummary(2, "Apple", "Private", Visibility.PRIVATE, OWNER, 0L));
+		
+		assertEquals(List.of(1, 2), ids(index.search("apple", OWNER, 10)));
+		assertEquals(List.of(1), ids(index.search("apple", OTHER_USER, 10)));
+	}
+	
+	@Test
+	void replacesWordsOfPreviousVersion() {
+		index.put(project(1, "Apple", "Fruit", 0));
+		index.put(project(1, "Pear", "Fruit", 1));
+		
+		assertEquals(List.of(), ids(index.search("apple", OTHER_USER, 10)));
+		assertEquals(List.of(1), ids(index.search("pear", OTHER_USER, 10)));
+		assertEquals(1, index.size());
+	}
+	
+	@Test
+	void ignoresOlderVersion() {
+		index.put(project(1, "Pear", "Fruit", 2));
+		index.put(project(1, "Apple", "Fruit", 1));
+		index.put(project(1, "Plum", "Fruit", 2));
+		
+		assertEquals(List.of(), ids(index.search("apple", OTHER_USER, 10)));
+		assertEquals(List.of(), ids(index.search("plum", OTHER_USER, 10)));
+		assertEquals(List.of(1), ids(index.search("pear", OTHER_USER, 10)));
+	}
+	
+	@Test
+	void doesNotAddBackRemovedProject() {
+		index.put(project(1, "Apple", "Fruit", 0));
+		index.remove(1, OWNER);
+		index.put(project(1, "Apple", "Fruit", 1));
+		
+		assertEquals(List.of(), ids(index.search("apple", OTHER_USER, 10)));
+		assertEquals(0, index.size());
+	}
+	
+	@Test
+	void keepsProjectWhenRemovedForAnotherOwner() {
+		index.put(project(1, "Apple", "Fruit", 0));
+		index.remove(1, OTHER_USER);
+		
+		assertEquals(List.of(1), ids(index.search("apple", OTHER_USER, 10)));
+	}
+	
+	@Test
+	void breaksTiesByIdWhenStoppingEarly() {
+		for (int id = 1; id <= 100; id++) {
+			index.put(project(id, "Common " + id, "Description", 0));
+		}
+		
+		assertEquals(List.of(1, 2, 3), ids(index.search("common", OTHER_USER, 3)));
+	}
+	
+	@Test
+	void keepsBestMatchFoundAfterTiesWhenStoppingEarly() {
+		for (int id = 1; id <= 100; id++) {
+			index.put(project(id, "Common " + id, "Description", 0));
+		}
+		index.put(project(90, "Common 90", "Common common", 1));
+		
+		assertEquals(List.of(90, 1, 2), ids(index.search("common", OTHER_USER, 3)));
+	}
+	
+	@Test
+	void ranksProjectsAddedOutOfOrderById() {
+		for (int id = 100; id >= 1; id--) {
+			index.put(project(id, "Common " + id, "Description", 0));
+		}
+		
+		assertEquals(List.of(1, 2, 3), ids(index.search("common", OTHER_USER, 3)));
+	}
+	
+	@Test
+	void refusesQueryWithoutWords() {
+		assertThrows(IllegalArgumentException.class, () -> index.search(" - ", OTHER_USER, 10));
+	}
+	
+	private static ProjectSummary project(Integer id, String name, String description, long version) {
+		return new ProjectSummary(id, name, description, Visibility.PUBLIC, OWNER, version);
+	}
+	
+	private static List<Integer> ids(List<ProjectSummary> projects) {
+		return projects.stream().map(ProjectSummary::getId).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,60 @@
+package org.lawcubator.assignment.userRegistrationBackend.security.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class RateLimitFilterTest {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+	
+	@Test
+	void allowsBurstUpToCapacity() {
+		RateLimitFilter.TokenBucket bucket = new RateLimitFilter.TokenBucket(new RateLimitFilter.BucketSettings(5, 1));
+		long now = System.nanoTime();
+		
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0, bucket.tryConsume(1, now));
+		}
+		
+		assertEquals(SECOND, bucket.tryConsume(1, now));
+	}
+	
+	@Test
+	void refillsAtTheGivenRate() {
+		RateLimitFilter.TokenBucket bucket = new RateLimitFilter.TokenBucket(new RateLimitFilter.BucketSettings(2, 4));
+		long now = System.nanoTime();
+		bucket.tryConsume(2, now);
+		
+		assertEquals(SECOND / 4, bucket.tryConsume(1, now));
+		assertEquals(0, bucket.tryConsume(1, now + SECOND / 4));
+		assertEquals(SECOND / 4, bucket.tryConsume(1, now + SECOND / 4));
+	}
+	
+	@Test
+	void doesNotRefillBeyondCapacityWhileIdle() {
+		RateLimitFilter.TokenBucket bucket = new RateLimitFilter.TokenBucket(new RateLimitFilter.BucketSettings(3, 1));
+		long later = System.nanoTime() + TimeUnit.HOURS.toNanos(1);
+		
+		assertEquals(0, bucket.tryConsume(3, later));
+		assertEquals(SECOND, bucket.tryConsume(1, later));
+	}
+	
+	@Test
+	void rejectedRequestTakesNoTokens() {
+		RateLimitFilter.TokenBucket bucket = new RateLimitFilter.TokenBucket(new RateLimitFilter.BucketSettings(3, 1));
+		long now = System.nanoTime();
+		
+		assertEquals(SECOND, bucket.tryConsume(4, now));
+		assertEquals(0, bucket.tryConsume(3, now));
+	}
+	
+	@Test
+	void refusesNonPositiveSettings() {
+		assertThrows(IllegalArgumentException.class, () -> new RateLimitFilter.BucketSettings(0, 1));
+		assertThrows(IllegalArgumentException.class, () -> new RateLimitFilter.BucketSettings(1, 0));
+	}
+}
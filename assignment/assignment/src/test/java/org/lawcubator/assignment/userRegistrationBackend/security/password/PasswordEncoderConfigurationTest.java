@@ -0,0 +1,52 @@
+package org.lawcubator.assignment.userRegistrationBackend.security.password;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PasswordEncoderConfigurationTest {
+
+	private final PooledPasswordEncoder passwordEncoder = new PasswordEncoderConfiguration()
+		.passwordEncoder(new SimpleMeterRegistry(), 5, Duration.ZERO, 4, 16, 4, 2, 10);
+	
+	@AfterEach
+	void closePasswordEncoder() {
+		passwordEncoder.close();
+	}
+	
+	@Test
+	void hashesPasswordsWithBCrypt() {
+		String encodedPassword = passwordEncoder.encode("Password 1");
+		
+		assertTrue(encodedPassword.startsWith("{bcrypt}$2a$05$"), encodedPassword);
+		assertTrue(passwordEncoder.isEncoded(encodedPassword));
+		assertTrue(passwordEncoder.matches("Password 1", encodedPassword));
+		assertFalse(passwordEncoder.matches("Password 2", encodedPassword));
+		assertFalse(passwordEncoder.upgradeEncoding(encodedPassword));
+	}
+	
+	@Test
+	void matchesPlainTextPasswordsAndFindsThemOutdated() {
+		assertTrue(passwordEncoder.matches("Password 1", "Password 1"));
+		assertFalse(passwordEncoder.matches("Password 1", "Password 10"));
+		assertFalse(passwordEncoder.matches("Password 1", "password 1"));
+		assertFalse(passwordEncoder.isEncoded("Password 1"));
+		assertTrue(passwordEncoder.upgradeEncoding("Password 1"));
+	}
+	
+	@Test
+	void findsWeakerHashesOutdated() {
+		String bulkEncodedPassword = passwordEncoder.encodeAll(List.of("Password 1")).get(0);
+		
+		assertTrue(bulkEncodedPassword.startsWith("{bcrypt}$2a$04$"), bulkEncodedPassword);
+		assertTrue(passwordEncoder.matches("Password 1", bulkEncodedPassword));
+		assertTrue(passwordEncoder.upgradeEncoding(bulkEncodedPassword));
+	}
+}
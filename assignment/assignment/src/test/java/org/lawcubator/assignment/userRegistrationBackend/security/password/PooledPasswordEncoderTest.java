@@ -0,0 +1,128 @@
+package org.lawcubator.assignment.userRegistrationBackend.security.password;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PooledPasswordEncoderTest {
+
+	private static final Pattern ENCODED_PASSWORD_PATTERN = Pattern.compile("\\{test\\}.*");
+	
+	private final CountDownLatch release = new CountDownLatch(1);
+	private PooledPasswordEncoder passwordEncoder;
+	
+	@AfterEach
+	void closePasswordEncoder() {
+		release.countDown();
+		passwordEncoder.close();
+	}
+	
+	@Test
+	void hashesInBulkInOrderKeepingValuesThatAreHashesAlready() {
+		release.countDown();
+		passwordEncoder = new PooledPasswordEncoder(new PrefixPasswordEncoder("{regular}"), new PrefixPasswordEncoder("{test}"),
+							    ENCODED_PASSWORD_PATTERN, new SimpleMeterRegistry(), 3, 1);
+		List<String> rawPasswords = new ArrayList<>();
+		List<String> expected = new ArrayList<>();
+		
+		for (int i = 0; i < 10; i++) {
+			String rawPassword = (i % 4 == 0) ? "{test}Hash " + i : "Password " + i;
+			rawPasswords.add(rawPassword);
+			expected.add(rawPassword.startsWith("{test}") ? rawPassword : "{test}" + rawPassword);
+		}
+		
+		assertEquals(expected, passwordEncoder.encodeAll(rawPasswords));
+		assertEquals("{regular}Password", passwordEncoder.encode("Password"));
+		assertTrue(passwordEncoder.isEncoded("{test}Hash"));
+		assertFalse(passwordEncoder.isEncoded("{regular}Password"));
+		assertFalse(passwordEncoder.isEncoded(null));
+	}
+	
+	@Test
+	void rejectsHashesBeyondThePoolAndItsQueue() throws Exception {
+		PrefixPasswordEncoder blocked = new PrefixPasswordEncoder("{test}");
+		MeterRegistry meterRegistry = new SimpleMeterRegistry();
+		passwordEncoder = new PooledPasswordEncoder(blocked, meterRegistry, 1, 1);
+		
+		CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("Password 1"));
+		assertTrue(blocked.started.await(10, TimeUnit.SECONDS));
+		CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("Password 2"));
+		
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		
+		while (meterRegistry.get("executor.queued").tag("name", "passwordHashing").gauge().value() < 1) {
+			assertTrue(System.nanoTime() < deadline, "Hash was not queued in time");
+			Thread.sleep(10);
+		}
+		
+		assertThrows(RejectedExecutionException.class, () -> passwordEncoder.matches("Password 3", "{test}Password 3"));
+		
+		release.countDown();
+		
+		assertEquals("{test}Password 1", running.get(10, TimeUnit.SECONDS));
+		assertEquals("{test}Password 2", queued.get(10, TimeUnit.SECONDS));
+		assertTrue(passwordEncoder.matches("Password 3", "{test}Password 3"));
+	}
+	
+	@Test
+	void rethrowsFailuresOfTheDelegateAsTheyAre() {
+		IllegalStateException failure = new IllegalStateException("Failed");
+		release.countDown();
+		passwordEncoder = new PooledPasswordEncoder(new PrefixPasswordEncoder("{test}") {
+			
+			@Override
+			public String encode(CharSequence rawPassword) {
+				throw failure;
+			}
+		}, new SimpleMeterRegistry(), 1, 1);
+		
+		assertSame(failure, assertThrows(IllegalStateException.class, () -> passwordEncoder.encode("Password")));
+	}
+	
+	/**
+	 * Encoder prefixing passwords, whose hashes wait for the test to release them once the first one has started
+	 */
+	private class PrefixPasswordEncoder implements PasswordEncoder {
+		
+		private final String prefix;
+		private final CountDownLatch started = new CountDownLatch(1);
+		
+		private PrefixPasswordEncoder(String prefix) {
+			this.prefix = prefix;
+		}
+		
+		@Override
+		public String encode(CharSequence rawPassword) {
+			started.countDown();
+			
+			try {
+				release.await();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			return prefix + rawPassword;
+		}
+		
+		@Override
+		public boolean matches(CharSequence rawPassword, String encodedPassword) {
+			return encode(rawPassword).equals(encodedPassword);
+		}
+	}
+}
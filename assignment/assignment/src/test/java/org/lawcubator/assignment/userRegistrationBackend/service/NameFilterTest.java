@@ -0,0 +1,63 @@
+package org.lawcubator.assignment.userRegistrationBackend.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class NameFilterTest {
+
+	@Test
+	void reportsEveryNameAsPossiblyTakenUntilLoaded() {
+		NameFilter filter = new NameFilter(100, 0.01);
+		
+		assertTrue(filter.mightContain("Free name"));
+		
+		filter.markLoaded();
+		
+		assertFalse(filter.mightContain("Free name"));
+	}
+	
+	@Test
+	void neverReportsATakenNameAsFree() {
+		NameFilter filter = new NameFilter(10_000, 0.01);
+		
+		for (int i = 0; i < 10_000; i++) {
+			filter.add("Project " + i);
+		}
+		filter.markLoaded();
+		
+		for (int i = 0; i < 10_000; i++) {
+			assertTrue(filter.mightContain("Project " + i));
+		}
+	}
+	
+	@Test
+	void reportsFreeNamesAsTakenAtAboutTheGivenRate() {
+		NameFilter filter = new NameFilter(10_000, 0.01);
+		
+		for (int i = 0; i < 10_000; i++) {
+			filter.add("Project " + i);
+		}
+		filter.markLoaded();
+		
+		int falsePositives = 0;
+		
+		for (int i = 0; i < 10_000; i++) {
+			if (filter.mightContain("Free project " + i)) {
+				falsePositives++;
+			}
+		}
+		
+		assertTrue(falsePositives < 300, falsePositives + " free names reported as taken");
+	}
+	
+	@Test
+	void refusesInvalidSizing() {
+		assertThrows(IllegalArgumentException.class, () -> new NameFilter(0, 0.01));
+		assertThrows(IllegalArgumentException.class, () -> new NameFilter(100, 0));
+		assertThrows(IllegalArgumentException.class, () -> new NameFilter(100, 1));
+		assertThrows(IllegalArgumentException.class, () -> new NameFilter(Integer.MAX_VALUE, 1e-9));
+	}
+}
@@ -0,0 +1,89 @@
+package org.lawcubator.assignment.userRegistrationBackend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectCollectionVersion;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.lawcubator.assignment.userRegistrationBackend.model.Visibility;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+class ProjectRequestServiceTest {
+
+	private static final String CURRENT_USER = "Username 2";
+	private static final ProjectSummary PROJECT = new ProjectSummary(1, "Project 1", "Description", Visibility.PUBLIC, "Username 1", 3L);
+	
+	private ProjectService projectService;
+	private ProjectRequestService projectRequestService;
+	private String collectionETag;
+	
+	@BeforeEach
+	void createService() {
+		projectService = mock(ProjectService.class);
+		projectRequestService = new ProjectRequestService(projectService, mock(UserService.class));
+		ProjectCollectionVersion version = new ProjectCollectionVersion(1L, ProjectCollectionVersion.firstHash(1, 3L),
+										ProjectCollectionVersion.secondHash(1, 3L));
+		collectionETag = "\"" + version.toETag() + "\"";
+		
+		when(projectService.findProjectSummaryById(1, CURRENT_USER)).thenReturn(PROJECT);
+		when(projectService.findVersionOfPublicProjectsOfOtherUsers(CURRENT_USER)).thenReturn(version);
+		when(projectService.findAllPublicProjectsOfOtherUsers(CURRENT_USER)).thenReturn(List.of(PROJECT));
+	}
+	
+	@Test
+	void sendsProjectAlongWithItsTagWithoutIfNoneMatch() {
+		ResponseEntity<ProjectSummary> response = projectRequestService.findProjectById(1, CURRENT_USER, null);
+		
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals("\"p1v3\"", response.getHeaders().getETag());
+		assertEquals(PROJECT, response.getBody());
+	}
+	
+	@Test
+	void answersNotModifiedWhileTheTagMatches() {
+		for (String ifNoneMatch : List.of("\"p1v3\"", "W/\"p1v3\"", "\"p1v2\", \"p1v3\"", "*")) {
+			ResponseEntity<ProjectSummary> response = projectRequestService.findProjectById(1, CURRENT_USER, ifNoneMatch);
+			
+			assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode(), ifNoneMatch);
+			assertEquals("\"p1v3\"", response.getHeaders().getETag());
+			assertNull(response.getBody());
+		}
+	}
+	
+	@Test
+	void sendsProjectOnceTheTagNoLongerMatches() {
+		for (String ifNoneMatch : List.of("\"p1v2\"", "p1v3", "\"p1v3", "\"p11v3\"")) {
+			ResponseEntity<ProjectSummary> response = projectRequestService.findProjectById(1, CURRENT_USER, ifNoneMatch);
+			
+			assertEquals(HttpStatus.OK, response.getStatusCode(), ifNoneMatch);
+			assertEquals(PROJECT, response.getBody());
+		}
+	}
+	
+	@Test
+	void doesNotLoadUnchangedCollection() {
+		ResponseEntity<List<ProjectSummary>> response = projectRequestService.findAllPublicProjectsOfOtherUsers(CURRENT_USER, collectionETag);
+		
+		assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+		assertEquals(collectionETag, response.getHeaders().getETag());
+		verify(projectService, never()).findAllPublicProjectsOfOtherUsers(CURRENT_USER);
+	}
+	
+	@Test
+	void loadsChangedCollection() {
+		ResponseEntity<List<ProjectSummary>> response = projectRequestService.findAllPublicProjectsOfOtherUsers(CURRENT_USER, "\"c0h0-0\"");
+		
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals(collectionETag, response.getHeaders().getETag());
+		assertEquals(List.of(PROJECT), response.getBody());
+	}
+}
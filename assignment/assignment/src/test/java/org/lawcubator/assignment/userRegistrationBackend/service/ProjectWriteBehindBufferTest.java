@@ -0,0 +1,177 @@
+package org.lawcubator.assignment.userRegistrationBackend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.lawcubator.assignment.userRegistrationBackend.model.Visibility;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ProjectWriteBehindBufferTest {
+
+	private static final Integer OWNER_ID = 1;
+	private static final String OWNER_USERNAME = "Username 1";
+	
+	private NamedParameterJdbcTemplate jdbcTemplate;
+	private TransactionTemplate transactionTemplate;
+	private MeterRegistry meterRegistry;
+	private List<ProjectSummary> writtenProjects;
+	private ProjectWriteBehindBuffer buffer;
+	
+	@BeforeEach
+	void createDatabase() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+		jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+		transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		jdbcTemplate.getJdbcOperations().execute("CREATE TABLE project (id INTEGER PRIMARY KEY, name VARCHAR(255) NOT NULL, "
+							 + "description VARCHAR(255) CHECK (description <> 'Rejected'), "
+							 + "visibility VARCHAR(255), version BIGINT, user_id INTEGER NOT NULL)");
+		
+		for (int id = 1; id <= 3; id++) {
+			jdbcTemplate.getJdbcOperations().update("INSERT INTO project VALUES (?, ?, 'Description', 'PUBLIC', 0, ?)",
+								id, "Project " + id, OWNER_ID);
+		}
+		
+		meterRegistry = new SimpleMeterRegistry();
+		writtenProjects = new CopyOnWriteArrayList<>();
+		buffer = buffer(Duration.ofHours(1));
+	}
+	
+	@AfterEach
+	void closeBuffer() {
+		buffer.destroy();
+	}
+	
+	@Test
+	void coalescesModificationsOfAProjectIntoASingleUpdate() {
+		modify(1, "First");
+		modify(1, "Second");
+		
+		assertEquals("Second", buffer.findPending(1).getDescription());
+		assertEquals("Description", storedDescription(1));
+		
+		buffer.flush(List.of(1));
+		
+		assertNull(buffer.findPending(1));
+		assertEquals("Second", storedDescription(1));
+		assertEquals(2L, storedVersion(1));
+		assertEquals(1, writtenProjects.size());
+		assertEquals(1.0, count("coalesced"));
+		assertEquals(1.0, count("written"));
+	}
+	
+	@Test
+	void dropsModificationOfAProjectModifiedInTheMeantime() {
+		modify(1, "Buffered");
+		jdbcTemplate.getJdbcOperations().update("UPDATE project SET description = 'Direct', version = 1 WHERE id = 1");
+		
+		buffer.flush(List.of(1));
+		
+		assertNull(buffer.findPending(1));
+		assertEquals("Direct", storedDescription(1));
+		assertEquals(1.0, count("dropped"));
+		assertEquals(0, writtenProjects.size());
+	}
+	
+	@Test
+	void writesStaleProjectBeforeModifyingItAgain() {
+		buffer.destroy();
+		buffer = buffer(Duration.ZERO);
+		
+		modify(1, "First");
+		modify(1, "Second");
+		
+		assertEquals("First", storedDescription(1));
+		assertEquals("Second", buffer.findPending(1).getDescription());
+		assertEquals(0.0, count("coalesced"));
+	}
+	
+	@Test
+	void refusesDescriptionLongerThanItsColumn() {
+		assertThrows(IllegalArgumentException.class, () -> modify(1, "x".repeat(256)));
+		
+		assertNull(buffer.findPending(1));
+	}
+	
+	@Test
+	void dropsOnlyTheModificationRejectedByTheDatabase() {
+		modify(1, "First");
+		modify(2, "Rejected");
+		modify(3, "Third");
+		
+		buffer.flush(List.of(1, 2, 3));
+		
+		assertEquals("First", storedDescription(1));
+		assertEquals("Description", storedDescription(2));
+		assertEquals("Third", storedDescription(3));
+		assertNull(buffer.findPending(2));
+		assertEquals(1.0, count("rejected"));
+		assertEquals(2.0, count("written"));
+	}
+	
+	@Test
+	void writesPendingModificationsOnClose() {
+		modify(1, "Pending");
+		
+		buffer.destroy();
+		
+		assertEquals("Pending", storedDescription(1));
+	}
+	
+	@Test
+	void closesWithoutThrowingWhenModificationsCannotBeWritten() {
+		modify(1, "Pending");
+		jdbcTemplate.getJdbcOperations().execute("DROP TABLE project");
+		
+		buffer.destroy();
+		
+		assertEquals("Pending", buffer.findPending(1).getDescription());
+	}
+	
+	private ProjectWriteBehindBuffer buffer(Duration maximumStaleness) {
+		return new ProjectWriteBehindBuffer(jdbcTemplate, transactionTemplate.getTransactionManager(),
+						    event -> writtenProjects.add(((ProjectChangeEvent) event).getProject()), meterRegistry,
+						    Duration.ofHours(1), maximumStaleness, 100);
+	}
+	
+	private ProjectSummary modify(Integer id, String description) {
+		return buffer.modify(id, OWNER_ID, () -> stored(id), latest -> new ProjectSummary(id, latest.getName(), description,
+											  Visibility.PUBLIC, OWNER_USERNAME,
+											  latest.getVersion() + 1));
+	}
+	
+	private ProjectSummary stored(Integer id) {
+		Map<String, Object> row = jdbcTemplate.queryForMap("SELECT name, description, version FROM project WHERE id = :id",
+								   Map.of("id", id));
+		return new ProjectSummary(id, (String) row.get("NAME"), (String) row.get("DESCRIPTION"), Visibility.PUBLIC,
+					  OWNER_USERNAME, ((Number) row.get("VERSION")).longValue());
+	}
+	
+	private String storedDescription(Integer id) {
+		return stored(id).getDescription();
+	}
+	
+	private long storedVersion(Integer id) {
+		return stored(id).getVersion();
+	}
+	
+	private double count(String outcome) {
+		return meterRegistry.counter("project.write-behind.modifications", "outcome", outcome).count();
+	}
+}
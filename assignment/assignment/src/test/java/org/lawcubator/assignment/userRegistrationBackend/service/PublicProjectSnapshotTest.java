@@ -0,0 +1,196 @@
+package org.lawcubator.assignment.userRegistrationBackend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectCollectionVersion;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.lawcubator.assignment.userRegistrationBackend.model.Visibility;
+import org.lawcubator.assignment.userRegistrationBackend.repository.ProjectRepository;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PublicProjectSnapshotTest {
+
+	private static final String OWNER = "Username 1";
+	
+	private final List<ProjectSummary> storedProjects = new CopyOnWriteArrayList<>();
+	private TransactionTemplate transactionTemplate;
+	private ProjectRepository projectRepository;
+	private MeterRegistry meterRegistry;
+	private PublicProjectSnapshot snapshot;
+	
+	@BeforeEach
+	void createSnapshot() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+		transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		projectRepository = mock(ProjectRepository.class);
+		when(projectRepository.streamPublicProjects()).thenAnswer(invocation -> List.copyOf(storedProjects).stream());
+		meterRegistry = new SimpleMeterRegistry();
+		
+		storedProjects.add(project(1, Visibility.PUBLIC, 0));
+		storedProjects.add(project(3, Visibility.PUBLIC, 0));
+	}
+	
+	@AfterEach
+	void closeSnapshot() {
+		snapshot.destroy();
+	}
+	
+	@Test
+	void loadsPublicProjectsFromTheDatabase() {
+		start(Duration.ofHours(1));
+		
+		assertEquals(List.of(1, 3), ids());
+		assertVersionMatchesProjects();
+	}
+	
+	@Test
+	void mergesChangesInOrderOfId() {
+		start(Duration.ofHours(1));
+		
+		snapshot.apply(List.of(ProjectChangeEvent.saved(project(4, Visibility.PUBLIC, 0)),
+				       ProjectChangeEvent.saved(project(2, Visibility.PUBLIC, 0)),
+				       ProjectChangeEvent.saved(project(5, Visibility.PRIVATE, 0)),
+				       ProjectChangeEvent.removed(1, OWNER)));
+		
+		assertEquals(List.of(2, 3, 4), ids());
+		assertVersionMatchesProjects();
+	}
+	
+	@Test
+	void replacesProjectWithNewerVersionOnly() {
+		start(Duration.ofHours(1));
+		
+		snapshot.apply(List.of(ProjectChangeEvent.saved(project(3, Visibility.PUBLIC, 2))));
+		snapshot.apply(List.of(ProjectChangeEvent.saved(project(3, Visibility.PUBLIC, 1))));
+		
+		assertEquals(List.of(0L, 2L), versions());
+		assertVersionMatchesProjects();
+	}
+	
+	@Test
+	void doesNotAddBackHiddenProject() {
+		start(Duration.ofHours(1));
+		
+		snapshot.apply(List.of(ProjectChangeEvent.saved(project(3, Visibility.PRIVATE, 2)),
+				       ProjectChangeEvent.removed(1, OWNER)));
+		snapshot.apply(List.of(ProjectChangeEvent.saved(project(3, Visibility.PUBLIC, 1)),
+				       ProjectChangeEvent.saved(project(1, Visibility.PUBLIC, 5))));
+		
+		assertEquals(List.of(), ids());
+		
+		snapshot.apply(List.of(ProjectChangeEvent.saved(project(3, Visibility.PUBLIC, 3))));
+		
+		assertEquals(List.of(3), ids());
+		assertVersionMatchesProjects();
+	}
+	
+	@Test
+	void appliesChangesOfATransactionOnceCommitted() {
+		start(Duration.ofHours(1));
+		
+		transactionTemplate.executeWithoutResult(status -> {
+			snapshot.applyOnceCommitted(ProjectChangeEvent.saved(project(2, Visibility.PUBLIC, 0)));
+			snapshot.applyOnceCommitted(ProjectChangeEvent.saved(project(4, Visibility.PUBLIC, 0)));
+			
+			assertEquals(List.of(1, 3), ids());
+		});
+		
+		assertEquals(List.of(1, 2, 3, 4), ids());
+		assertVersionMatchesProjects();
+	}
+	
+	@Test
+	void discardsChangesOfARolledBackTransaction() {
+		start(Duration.ofHours(1));
+		
+		transactionTemplate.executeWithoutResult(status -> {
+			snapshot.applyOnceCommitted(ProjectChangeEvent.saved(project(2, Visibility.PUBLIC, 0)));
+			status.setRollbackOnly();
+		});
+		snapshot.applyOnceCommitted(ProjectChangeEvent.saved(project(4, Visibility.PUBLIC, 0)));
+		
+		assertEquals(List.of(1, 3, 4), ids());
+	}
+	
+	@Test
+	void reconciliationCorrectsMissedChanges() {
+		start(Duration.ofMillis(20));
+		
+		storedProjects.remove(0);
+		storedProjects.add(project(5, Visibility.PUBLIC, 0));
+		await(() -> meterRegistry.counter("project.public-snapshot.drifted").count() >= 2);
+		
+		assertEquals(List.of(3, 5), ids());
+		assertVersionMatchesProjects();
+	}
+	
+	private void start(Duration reconcileInterval) {
+		snapshot = new PublicProjectSnapshot(projectRepository, transactionTemplate.getTransactionManager(), meterRegistry,
+						     reconcileInterval);
+		snapshot.start();
+		await(snapshot::isLoaded);
+	}
+	
+	private void assertVersionMatchesProjects() {
+		List<ProjectSummary> projects = snapshot.findAllOfOtherUsers("Username 2", Integer.MAX_VALUE);
+		long firstHashSum = 0;
+		long secondHashSum = 0;
+		
+		for (ProjectSummary project : projects) {
+			firstHashSum += ProjectCollectionVersion.firstHash(project.getId(), project.getVersion());
+			secondHashSum += ProjectCollectionVersion.secondHash(project.getId(), project.getVersion());
+		}
+		
+		ProjectCollectionVersion expected = new ProjectCollectionVersion((long) projects.size(), firstHashSum, secondHashSum);
+		assertEquals(expected.toETag(), snapshot.getVersion().toETag());
+	}
+	
+	private List<Integer> ids() {
+		return snapshot.findAllOfOtherUsers("Username 2", Integer.MAX_VALUE).stream()
+			       .map(ProjectSummary::getId)
+			       .collect(Collectors.toList());
+	}
+	
+	private List<Long> versions() {
+		return snapshot.findAllOfOtherUsers("Username 2", Integer.MAX_VALUE).stream()
+			       .map(ProjectSummary::getVersion)
+			       .collect(Collectors.toList());
+	}
+	
+	private static ProjectSummary project(Integer id, Visibility visibility, long version) {
+		return new ProjectSummary(id, "Project " + id, "Description", visibility, OWNER, version);
+	}
+	
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "Condition was not met in time");
+			
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new AssertionError(ex);
+			}
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package org.lawcubator.assignment.userRegistrationBackend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.lawcubator.assignment.userRegistrationBackend.repository.UserRepository;
+import org.lawcubator.assignment.userRegistrationBackend.security.password.PooledPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class UserServiceTest {
+
+	private final AtomicInteger hashes = new AtomicInteger();
+	private final CountDownLatch hashing = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final AtomicInteger failuresLeft = new AtomicInteger();
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final PooledPasswordEncoder passwordEncoder = new PooledPasswordEncoder(new CountingPasswordEncoder(), meterRegistry, 2, 10);
+	private final UserService userService = new UserService(mock(UserRepository.class), passwordEncoder, mock(PlatformTransactionManager.class),
+								meterRegistry, 100, Duration.ofMinutes(10), 100, Duration.ofMinutes(10), 100, 0.01);
+	
+	@AfterEach
+	void closePasswordEncoder() {
+		release.countDown();
+		passwordEncoder.close();
+	}
+	
+	@Test
+	void remembersVerifiedPasswordsForTheSameHashOnly() {
+		release.countDown();
+		
+		assertTrue(userService.matchesPassword("Password 1", "{test}Password 1"));
+		assertTrue(userService.matchesPassword("Password 1", "{test}Password 1"));
+		assertFalse(userService.matchesPassword("Password 2", "{test}Password 1"));
+		assertFalse(userService.matchesPassword("Password 2", "{test}Password 1"));
+		assertEquals(2, hashes.get());
+		
+		assertFalse(userService.matchesPassword("Password 1", "{test}Password 1 changed"));
+		assertEquals(3, hashes.get());
+	}
+	
+	@Test
+	void sharesOneHashBetweenConcurrentVerifications() throws Exception {
+		CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> userService.matchesPassword("Password 1", "{test}Password 1"));
+		assertTrue(hashing.await(10, TimeUnit.SECONDS));
+		CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(() -> userService.matchesPassword("Password 1", "{test}Password 1"));
+		
+		release.countDown();
+		
+		assertTrue(first.get(10, TimeUnit.SECONDS));
+		assertTrue(second.get(10, TimeUnit.SECONDS));
+		assertEquals(1, hashes.get());
+	}
+	
+	@Test
+	void verifiesAgainAfterARejectedVerification() {
+		release.countDown();
+		failuresLeft.set(1);
+		
+		assertThrows(RejectedExecutionException.class, () -> userService.matchesPassword("Password 1", "{test}Password 1"));
+		assertTrue(userService.matchesPassword("Password 1", "{test}Password 1"));
+		assertEquals(2, hashes.get());
+	}
+	
+	@Test
+	void refusesMissingPasswords() {
+		assertFalse(userService.matchesPassword(null, "{test}Password 1"));
+		assertFalse(userService.matchesPassword("Password 1", null));
+		assertEquals(0, hashes.get());
+	}
+	
+	/**
+	 * Encoder prefixing passwords, which counts the passwords it verifies
+	 */
+	private class CountingPasswordEncoder implements PasswordEncoder {
+		
+		@Override
+		public String encode(CharSequence rawPassword) {
+			return "{test}" + rawPassword;
+		}
+		
+		@Override
+		public boolean matches(CharSequence rawPassword, String encodedPassword) {
+			hashes.incrementAndGet();
+			hashing.countDown();
+			
+			try {
+				release.await();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			
+			if (failuresLeft.getAndDecrement() > 0) {
+				throw new RejectedExecutionException("Too many passwords are being hashed");
+			}
+			return encode(rawPassword).equals(encodedPassword);
+		}
+	}
+}
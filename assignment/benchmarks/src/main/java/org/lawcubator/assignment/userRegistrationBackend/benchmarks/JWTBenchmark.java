@@ -0,0 +1,65 @@
+package org.lawcubator.assignment.userRegistrationBackend.benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.lawcubator.assignment.userRegistrationBackend.security.jwt.JWTUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Benchmarks of generating, parsing and validating JSON Web Tokens
+ * <p>
+ * A token cache size of {@code 0} measures the signature check and claims parsing on every call, 
+ * any other size measures tokens being served from the verified token cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JWTBenchmark {
+	
+	@Param({"0", "10000"})
+	private long tokenCacheSize;
+	
+	private JWTUtil jwtUtil;
+	private UserDetails userDetails;
+	private String token;
+	
+	@Setup
+	public void setUp() {
+		jwtUtil = new JWTUtil(new SimpleMeterRegistry(), tokenCacheSize);
+		userDetails = new User("Username 1", "Password 1", new ArrayList<>());
+		token = jwtUtil.generateToken(userDetails);
+	}
+	
+	@Benchmark
+	public String generateToken() {
+		return jwtUtil.generateToken(userDetails);
+	}
+	
+	@Benchmark
+	public String extractUsername() {
+		return jwtUtil.extractUsername(token);
+	}
+	
+	@Benchmark
+	public boolean validateToken() {
+		return jwtUtil.validateToken(token, userDetails);
+	}
+}
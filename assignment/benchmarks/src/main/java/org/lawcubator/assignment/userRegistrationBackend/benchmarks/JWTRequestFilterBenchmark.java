@@ -0,0 +1,89 @@
+package org.lawcubator.assignment.userRegistrationBackend.benchmarks;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+
+import org.lawcubator.assignment.userRegistrationBackend.model.User;
+import org.lawcubator.assignment.userRegistrationBackend.repository.UserRepository;
+import org.lawcubator.assignment.userRegistrationBackend.security.filter.JWTRequestFilter;
+import org.lawcubator.assignment.userRegistrationBackend.security.jwt.JWTUtil;
+import org.lawcubator.assignment.userRegistrationBackend.security.password.PooledPasswordEncoder;
+import org.lawcubator.assignment.userRegistrationBackend.service.UserService;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Benchmark of authenticating a request carrying a JSON Web Token, through the whole {@link JWTRequestFilter}
+ * <p>
+ * The users table is replaced by a mock repository, which is only queried until the User details are cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JWTRequestFilterBenchmark {
+	
+	private static final String USERNAME = "Username 1";
+	
+	@Param({"false", "true"})
+	private boolean statelessPrincipal;
+	
+	private JWTRequestFilter jwtRequestFilter;
+	private FilterChain filterChain;
+	private String authorizationHeader;
+	
+	@Setup
+	public void setUp() {
+		MeterRegistry meterRegistry = new SimpleMeterRegistry();
+		UserRepository userRepository = Mockito.mock(UserRepository.class);
+		Mockito.when(userRepository.findByUsername(USERNAME)).thenReturn(new User(USERNAME, "Password 1"));
+		
+		PooledPasswordEncoder passwordEncoder = new PooledPasswordEncoder(NoOpPasswordEncoder.getInstance(), meterRegistry, 1, 1);
+		UserService userService = new UserService(userRepository, passwordEncoder, Mockito.mock(PlatformTransactionManager.class),
+							  meterRegistry, 10000, Duration.ofMinutes(10), 10000, Duration.ofMinutes(10), 1000, 0.01);
+		JWTUtil jwtUtil = new JWTUtil(meterRegistry, 10000);
+		
+		jwtRequestFilter = new JWTRequestFilter(jwtUtil, userService, meterRegistry, statelessPrincipal);
+		filterChain = (request, response) -> { };
+		authorizationHeader = "Bearer " + jwtUtil.generateToken(userService.loadUserByUsername(USERNAME));
+	}
+	
+	@Benchmark
+	public Authentication doFilter() throws ServletException, IOException {
+		// A new request every time, since the filter only runs once per request
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/projectApi/v1/projects/all");
+		request.addHeader("Authorization", authorizationHeader);
+		
+		try {
+			jwtRequestFilter.doFilter(request, new MockHttpServletResponse(), filterChain);
+			return SecurityContextHolder.getContext().getAuthentication();
+		} finally {
+			SecurityContextHolder.clearContext();
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package org.lawcubator.assignment.userRegistrationBackend.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.lawcubator.assignment.userRegistrationBackend.model.Visibility;
+import org.lawcubator.assignment.userRegistrationBackend.search.ProjectNameIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of suggesting Project names from the {@link ProjectNameIndex}
+ * <p>
+ * The index holds the given number of Projects named {@code Project <number>}, spread over {@value #USERS}
+ * Users, every other Project being {@code Public}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ProjectNameIndexBenchmark {
+
+	private static final int USERS = 1000;
+	private static final int MAXIMUM_RESULTS = 10;
+	
+	@Param({"1000", "100000", "1000000"})
+	private int projects;
+	
+	private ProjectNameIndex nameIndex;
+	
+	@Setup
+	public void setUp() {
+		nameIndex = new ProjectNameIndex();
+		
+		for (int i = 0; i < projects; i++) {
+			Visibility visibility = (i % 2 == 0) ? Visibility.PUBLIC : Visibility.PRIVATE;
+			nameIndex.put(new ProjectSummary(i, "Project " + i, "Description " + i, visibility, "Username " + (i % USERS), 0L));
+		}
+	}
+	
+	/**
+	 * Prefix matching nearly every Project, of which only the first ones are read
+	 */
+	@Benchmark
+	public List<ProjectSummary> suggestCommonPrefix() {
+		return nameIndex.suggest("proj", "Username 1", MAXIMUM_RESULTS);
+	}
+	
+	/**
+	 * Prefix matching a handful of Projects
+	 */
+	@Benchmark
+	public List<ProjectSummary> suggestNarrowPrefix() {
+		return nameIndex.suggest("project 12", "Username 1", MAXIMUM_RESULTS);
+	}
+	
+	/**
+	 * Prefix matching no Project
+	 */
+	@Benchmark
+	public List<ProjectSummary> suggestMissingPrefix() {
+		return nameIndex.suggest("unknown", "Username 1", MAXIMUM_RESULTS);
+	}
+}
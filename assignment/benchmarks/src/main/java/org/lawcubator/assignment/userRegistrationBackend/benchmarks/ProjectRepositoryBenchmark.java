@@ -0,0 +1,144 @@
+package org.lawcubator.assignment.userRegistrationBackend.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.lawcubator.assignment.userRegistrationBackend.UserRegistrationBackendApplication;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectCollectionVersion;
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.lawcubator.assignment.userRegistrationBackend.model.User;
+import org.lawcubator.assignment.userRegistrationBackend.model.Visibility;
+import org.lawcubator.assignment.userRegistrationBackend.repository.ProjectRepository;
+import org.lawcubator.assignment.userRegistrationBackend.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Benchmarks of the {@link ProjectRepository} queries against an in-memory H2 database
+ * <p>
+ * The application context is started without its web server, and the database is seeded with the given 
+ * number of Projects spread over {@value #USERS} Users, every other Project being {@code Public}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ProjectRepositoryBenchmark {
+	
+	private static final int USERS = 1000;
+	private static final int FIRST_ID = 1000;
+	private static final int SEED_BATCH_SIZE = 10000;
+	
+	@Param({"1000", "100000", "1000000"})
+	private int projects;
+	
+	private ConfigurableApplicationContext applicationContext;
+	private ProjectRepository projectRepository;
+	private User user;
+	private Integer middleProjectId;
+	private Pageable firstResults;
+	private Pageable page;
+	
+	@Setup
+	public void setUp() {
+		applicationContext = new SpringApplicationBuilder(UserRegistrationBackendApplication.class)
+					     .web(WebApplicationType.NONE)
+					     .logStartupInfo(false)
+					     .run("--spring.datasource.url=jdbc:h2:mem:benchmarks;DB_CLOSE_DELAY=-1",
+						  "--spring.jpa.show-sql=false",
+						  "--logging.level.root=warn",
+						  "--logging.level.org.hibernate.SQL=warn",
+						  "--logging.level.org.hibernate.type.descriptor.sql=warn");
+		
+		seed(applicationContext.getBean(JdbcTemplate.class));
+		
+		projectRepository = applicationContext.getBean(ProjectRepository.class);
+		user = applicationContext.getBean(UserRepository.class).findByUsername(username(0));
+		middleProjectId = FIRST_ID + projects / 2;
+		firstResults = PageRequest.of(0, 1000);
+		page = PageRequest.of(0, 51);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		applicationContext.close();
+	}
+	
+	@Benchmark
+	public ProjectSummary findProjectSummaryById() {
+		return projectRepository.findProjectSummaryById(middleProjectId);
+	}
+	
+	@Benchmark
+	public List<ProjectSummary> findProjectsByUser() {
+		return projectRepository.findProjectsByUser(user);
+	}
+	
+	@Benchmark
+	public List<ProjectSummary> findProjectsByUserAndVisibility() {
+		return projectRepository.findProjectsByUserAndVisibility(user, Visibility.PUBLIC);
+	}
+	
+	@Benchmark
+	public List<ProjectSummary> findAllPublicProjectsOfOtherUsers() {
+		return projectRepository.findAllPublicProjectsOfOtherUsers(user.getUsername(), firstResults);
+	}
+	
+	@Benchmark
+	public List<ProjectSummary> findPublicProjectsOfOtherUsersAfter() {
+		return projectRepository.findPublicProjectsOfOtherUsersAfter(user.getUsername(), middleProjectId, page);
+	}
+	
+	@Benchmark
+	public ProjectCollectionVersion findVersionOfProjectsByUser() {
+		return projectRepository.findVersionOfProjectsByUser(user);
+	}
+	
+	@Benchmark
+	public ProjectCollectionVersion findVersionOfPublicProjectsOfOtherUsers() {
+		return projectRepository.findVersionOfPublicProjectsOfOtherUsers(user.getUsername());
+	}
+	
+	private void seed(JdbcTemplate jdbcTemplate) {
+		List<Object[]> users = new ArrayList<>(USERS);
+		for (int i = 0; i < USERS; i++) {
+			users.add(new Object[] {FIRST_ID + i, username(i), "Benchmark password " + i});
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO user (id, username, password) VALUES (?, ?, ?)", users);
+		
+		List<Object[]> batch = new ArrayList<>(SEED_BATCH_SIZE);
+		for (int i = 0; i < projects; i++) {
+			Visibility visibility = (i % 2 == 0) ? Visibility.PUBLIC : Visibility.PRIVATE;
+			batch.add(new Object[] {FIRST_ID + i, "Benchmark project " + i, "Benchmark project description " + i, 
+						visibility.name(), FIRST_ID + i % USERS, 0L});
+			
+			if (batch.size() == SEED_BATCH_SIZE || i == projects - 1) {
+				jdbcTemplate.batchUpdate("INSERT INTO project (id, name, description, visibility, user_id, version) VALUES (?, ?, ?, ?, ?, ?)", batch);
+				batch.clear();
+			}
+		}
+	}
+	
+	private static String username(int index) {
+		return "Benchmark user " + index;
+	}
+}
@@ -0,0 +1,101 @@
+package org.lawcubator.assignment.userRegistrationBackend.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.lawcubator.assignment.userRegistrationBackend.model.ProjectSummary;
+import org.lawcubator.assignment.userRegistrationBackend.model.Visibility;
+import org.lawcubator.assignment.userRegistrationBackend.search.ProjectSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of searching the {@link ProjectSearchIndex}
+ * <p>
+ * The index holds the given number of Projects spread over {@value #USERS} Users, every other Project being
+ * {@code Public}. Every description is made of {@value #DESCRIPTION_WORDS} words drawn from a vocabulary of
+ * {@value #VOCABULARY} words, so that a single word of the vocabulary matches about 1% of the Projects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ProjectSearchIndexBenchmark {
+
+	private static final int USERS = 1000;
+	private static final int VOCABULARY = 1000;
+	private static final int DESCRIPTION_WORDS = 8;
+	private static final int MAXIMUM_RESULTS = 20;
+	
+	@Param({"1000", "100000", "1000000"})
+	private int projects;
+	
+	private ProjectSearchIndex searchIndex;
+	private String projectName;
+	
+	@Setup
+	public void setUp() {
+		searchIndex = new ProjectSearchIndex();
+		Random random = new Random(42);
+		
+		for (int i = 0; i < projects; i++) {
+			StringBuilder description = new StringBuilder();
+			for (int word = 0; word < DESCRIPTION_WORDS; word++) {
+				description.append("word").append(random.nextInt(VOCABULARY)).append(' ');
+			}
+			
+			Visibility visibility = (i % 2 == 0) ? Visibility.PUBLIC : Visibility.PRIVATE;
+			searchIndex.put(new ProjectSummary(i, "Project " + i, description.toString(), visibility, username(i % USERS), 0L));
+		}
+		
+		projectName = "project " + (projects / 2);
+	}
+	
+	private static String username(int user) {
+		return "Username " + user;
+	}
+	
+	/**
+	 * Query matching a single Project by its name
+	 */
+	@Benchmark
+	public List<ProjectSummary> searchName() {
+		return searchIndex.search(projectName, username(0), MAXIMUM_RESULTS);
+	}
+	
+	/**
+	 * Query of two words of the vocabulary, each matching about 1% of the Projects
+	 */
+	@Benchmark
+	public List<ProjectSummary> searchTwoWords() {
+		return searchIndex.search("word17 word42", username(0), MAXIMUM_RESULTS);
+	}
+	
+	/**
+	 * Query of a single word of the vocabulary, matching about 1% of the Projects
+	 */
+	@Benchmark
+	public List<ProjectSummary> searchOneWord() {
+		return searchIndex.search("word17", username(0), MAXIMUM_RESULTS);
+	}
+	
+	/**
+	 * Query of a word every Project contains, ranking all of them
+	 */
+	@Benchmark
+	public List<ProjectSummary> searchCommonWord() {
+		return searchIndex.search("project", username(0), MAXIMUM_RESULTS);
+	}
+}
@@ -0,0 +1,321 @@
+package org.lawcubator.assignment.userRegistrationBackend.loadtest;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Sends requests to the {@code projectApi/v1/} endpoints, or their asynchronous variants, following an open model
+ * <p>
+ * Requests arrive as a Poisson process at the target rate, whether or not earlier requests have been answered,
+ * the way independent clients would send them. The latency of every request is measured from the moment it was
+ * scheduled to be sent, so that a slow server is not hidden by requests being sent late (coordinated omission).
+ */
+class LoadGenerator {
+
+	private static final String API_PATH = "projectApi/v1/";
+	private static final String ASYNC_API_PATH = "projectApi/v1/async/";
+	private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+	private final HttpClient httpClient;
+	private final ObjectMapper objectMapper;
+	private final URI baseUri;
+	private final List<TestUser> users;
+	private final List<Integer> publicProjects;
+	private final LoadTestOptions options;
+	private final String apiPath;
+	private final Operation[] operations;
+	private final int[] cumulativeWeights;
+	private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+	private final OperationStats totalStats = new OperationStats();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicLong projectNames = new AtomicLong();
+	private volatile long measurementStart;
+
+	LoadGenerator(HttpClient httpClient, ObjectMapper objectMapper, URI baseUri, List<TestUser> users,
+		      List<Integer> publicProjects, LoadTestOptions options) {
+		this.httpClient = httpClient;
+		this.objectMapper = objectMapper;
+		this.baseUri = baseUri;
+		this.users = users;
+		this.publicProjects = publicProjects;
+		this.options = options;
+		this.apiPath = options.isAsync() ? ASYNC_API_PATH : API_PATH;
+
+		Map<Operation, Integer> mix = options.getMix();
+		this.operations = mix.keySet().toArray(new Operation[0]);
+		this.cumulativeWeights = new int[operations.length];
+		int totalWeight = 0;
+		for (int i = 0; i < operations.length; i++) {
+			totalWeight += mix.get(operations[i]);
+			cumulativeWeights[i] = totalWeight;
+		}
+
+		for (Operation operation : Operation.values()) {
+			stats.put(operation, new OperationStats());
+		}
+	}
+
+	/**
+	 * Sends requests for the duration of the warmup and of the measurement, then waits for the requests
+	 * still in flight to be answered
+	 */
+	void run() {
+		long warmupNanos = options.getWarmup().toNanos();
+		long durationNanos = options.getDuration().toNanos();
+		double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / options.getRate();
+
+		long start = System.nanoTime();
+		measurementStart = start + warmupNanos;
+		long end = measurementStart + durationNanos;
+		long arrival = start;
+
+		while (arrival < end) {
+			long delay = arrival - System.nanoTime();
+			if (delay > 0) {
+				LockSupport.parkNanos(delay);
+			}
+
+			send(arrival);
+
+			// Exponentially distributed gaps between arrivals make up a Poisson process
+			arrival += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanIntervalNanos);
+		}
+
+		long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+		while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+		}
+	}
+
+	private void send(long scheduledTime) {
+		Operation operation = nextOperation();
+		TestUser user = users.get(ThreadLocalRandom.current().nextInt(users.size()));
+
+		if (inFlight.incrementAndGet() > options.getMaximumInFlight()) {
+			inFlight.decrementAndGet();
+			recordDrop(operation, scheduledTime);
+			return;
+		}
+
+		Integer removedProject = null;
+		if (operation == Operation.PROJECT_REMOVE) {
+			removedProject = user.getCreatedProjects().poll();
+			if (removedProject == null) {
+				// Nothing left to delete, a Project is created instead so that later deletes have something to work on
+				operation = Operation.PROJECT_NEW;
+			}
+		}
+
+		Operation sentOperation = operation;
+		HttpRequest request = request(sentOperation, user, removedProject);
+
+		httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+			  .whenComplete((response, ex) -> {
+				  boolean success = ex == null && response.statusCode() < 400;
+				  record(sentOperation, scheduledTime, success);
+				  if (success && sentOperation == Operation.PROJECT_NEW) {
+					  user.getCreatedProjects().add(createdProjectId(response.body()));
+				  }
+				  inFlight.decrementAndGet();
+			  });
+	}
+
+	private Operation nextOperation() {
+		int weight = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+		for (int i = 0; i < operations.length; i++) {
+			if (weight < cumulativeWeights[i]) {
+				return operations[i];
+			}
+		}
+		return operations[operations.length - 1];
+	}
+
+	private HttpRequest request(Operation operation, TestUser user, Integer removedProject) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		String username = encode(user.getUsername());
+
+		switch (operation) {
+			case PROJECT: {
+				Integer projectId = publicProjects.get(random.nextInt(publicProjects.size()));
+				return get(operation, "currentUser=" + username + "&projectId=" + projectId, user);
+			}
+			case PROJECTS_ALL: {
+				TestUser requestedUser = users.get(random.nextInt(users.size()));
+				return get(operation, "currentUser=" + username + "&requestedUser=" + encode(requestedUser.getUsername()), user);
+			}
+			case OTHER_PROJECTS_ALL:
+				return get(operation, "currentUser=" + username, user);
+			case PROJECT_NEW: {
+				String visibility = random.nextBoolean() ? "PUBLIC" : "PRIVATE";
+				String name = "Load test project " + projectNames.incrementAndGet() + " of " + user.getUsername();
+				Map<String, Object> project = project(null, name, "Created by the load test", visibility, user);
+				return send(operation, "POST", "user=" + username, project, user);
+			}
+			case PROJECT_MODIFY: {
+				List<Integer> seededProjects = user.getSeededProjectIds();
+				Integer projectId = seededProjects.get(random.nextInt(seededProjects.size()));
+				Map<String, Object> project = project(projectId, user.getSeededProjects().get(projectId),
+								      "Modified by the load test " + random.nextInt(), "PUBLIC", user);
+				return send(operation, "PUT", "user=" + username, project, user);
+			}
+			case PROJECT_REMOVE:
+				return HttpRequest.newBuilder(uri(operation, "user=" + username + "&projectId=" + removedProject))
+						  .header("Authorization", "Bearer " + user.getToken())
+						  .DELETE()
+						  .build();
+			default:
+				throw new IllegalArgumentException("Operation " + operation + " is unknown");
+		}
+	}
+
+	private HttpRequest get(Operation operation, String query, TestUser user) {
+		return HttpRequest.newBuilder(uri(operation, query))
+				  .header("Authorization", "Bearer " + user.getToken())
+				  .GET()
+				  .build();
+	}
+
+	private HttpRequest send(Operation operation, String method, String query, Map<String, Object> body, TestUser user) {
+		try {
+			return HttpRequest.newBuilder(uri(operation, query))
+					  .header("Authorization", "Bearer " + user.getToken())
+					  .header("Content-Type", "application/json")
+					  .method(method, HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+					  .build();
+		} catch (JsonProcessingException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private Map<String, Object> project(Integer id, String name, String description, String visibility, TestUser user) {
+		Map<String, Object> owner = new LinkedHashMap<>();
+		owner.put("id", user.getId());
+		owner.put("username", user.getUsername());
+		owner.put("password", user.getPassword());
+
+		Map<String, Object> project = new LinkedHashMap<>();
+		if (id != null) {
+			project.put("id", id);
+		}
+		project.put("name", name);
+		project.put("description", description);
+		project.put("visibility", visibility);
+		project.put("user", owner);
+		return project;
+	}
+
+	private URI uri(Operation operation, String query) {
+		return baseUri.resolve(apiPath + operation.getPath() + "?" + query);
+	}
+
+	private Integer createdProjectId(String body) {
+		try {
+			return objectMapper.readTree(body).path("id").asInt();
+		} catch (JsonProcessingException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+
+	private void record(Operation operation, long scheduledTime, boolean success) {
+		if (scheduledTime < measurementStart) {
+			return;
+		}
+
+		long latency = System.nanoTime() - scheduledTime;
+		stats.get(operation).record(latency, success);
+		totalStats.record(latency, success);
+	}
+
+	private void recordDrop(Operation operation, long scheduledTime) {
+		if (scheduledTime < measurementStart) {
+			return;
+		}
+
+		// A dropped request was never sent, it has no latency to record
+		stats.get(operation).drops.increment();
+		totalStats.drops.increment();
+	}
+
+	/**
+	 * Prints the throughput, error rate and latency percentiles of every operation measured
+	 *
+	 * @param out Output the report is printed to
+	 */
+	void printReport(PrintStream out) {
+		double seconds = options.getDuration().toNanos() / 1e9;
+
+		out.printf("Target rate %.1f requests/s to %s for %s after a warmup of %s%n", 
+			   options.getRate(), apiPath, options.getDuration(), options.getWarmup());
+		out.printf("%-20s %10s %10s %10s %8s %12s %10s %10s %10s %10s%n",
+			   "Operation", "Requests", "Dropped", "Errors", "Error %", "Requests/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+
+		for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+			if (entry.getValue().requests.sum() + entry.getValue().drops.sum() > 0) {
+				entry.getValue().print(out, entry.getKey().getPath(), seconds);
+			}
+		}
+
+		totalStats.print(out, "total", seconds);
+	}
+
+	/**
+	 * Latency and outcome of the requests of a single operation
+	 * <p>
+	 * Requests dropped because too many were in flight are only counted, the latencies and the error rate are those
+	 * of the requests actually sent.
+	 */
+	private static final class OperationStats {
+
+		private final Histogram latencies = new ConcurrentHistogram(3);
+		private final LongAdder requests = new LongAdder();
+		private final LongAdder errors = new LongAdder();
+		private final LongAdder drops = new LongAdder();
+
+		private void record(long latencyNanos, boolean success) {
+			latencies.recordValue(latencyNanos);
+			requests.increment();
+			if (!success) {
+				errors.increment();
+			}
+		}
+
+		private void print(PrintStream out, String name, double seconds) {
+			long requestCount = requests.sum();
+			long errorCount = errors.sum();
+
+			out.printf("%-20s %10d %10d %10d %8.2f %12.1f %10.2f %10.2f %10.2f %10.2f%n",
+				   name, requestCount, drops.sum(), errorCount, 100.0 * errorCount / Math.max(1, requestCount), requestCount / seconds,
+				   millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(99)),
+				   millis(latencies.getValueAtPercentile(99.9)), millis(latencies.getMaxValue()));
+		}
+
+		private static double millis(long nanos) {
+			return nanos / 1e6;
+		}
+	}
+}
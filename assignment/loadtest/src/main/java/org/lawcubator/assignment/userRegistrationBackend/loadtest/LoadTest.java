@@ -0,0 +1,153 @@
+package org.lawcubator.assignment.userRegistrationBackend.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.lawcubator.assignment.userRegistrationBackend.UserRegistrationBackendApplication;
+import org.lawcubator.assignment.userRegistrationBackend.model.AuthenticationRequest;
+import org.lawcubator.assignment.userRegistrationBackend.model.Project;
+import org.lawcubator.assignment.userRegistrationBackend.model.User;
+import org.lawcubator.assignment.userRegistrationBackend.model.Visibility;
+import org.lawcubator.assignment.userRegistrationBackend.service.ProjectService;
+import org.lawcubator.assignment.userRegistrationBackend.service.UserService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Load test of the {@code projectApi/v1/} endpoints
+ * <p>
+ * Starts the application on a random port against an in-memory database, seeds it with Users and Projects,
+ * logs every User in through {@code userApi/v1/login}, and then sends a mix of requests at the target rate.
+ * Throughput, error rate and latency percentiles of every operation are printed once it is over.
+ * See {@link LoadTestOptions} for the supported options.
+ */
+public class LoadTest {
+
+	private static final int SEED_CHUNK_SIZE = 1000;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		LoadTestOptions options = LoadTestOptions.parse(args);
+
+		if (options.getProjects() < options.getUsers()) {
+			throw new IllegalArgumentException("Every User needs at least one Project, --projects must not be less than --users");
+		}
+
+		try (ConfigurableApplicationContext applicationContext = startApplication(options)) {
+			URI baseUri = URI.create("http://localhost:" + applicationContext.getEnvironment().getProperty("local.server.port") + "/");
+			ObjectMapper objectMapper = applicationContext.getBean(ObjectMapper.class);
+			HttpClient httpClient = HttpClient.newBuilder()
+							  .version(HttpClient.Version.HTTP_1_1)
+							  .connectTimeout(Duration.ofSeconds(10))
+							  .build();
+
+			List<Integer> publicProjects = new ArrayList<>();
+			List<TestUser> users = seed(applicationContext, options, publicProjects);
+			System.out.printf("Seeded %d users and %d projects%n", users.size(), options.getProjects());
+
+			for (TestUser user : users) {
+				user.setToken(login(httpClient, objectMapper, baseUri, user));
+			}
+
+			System.out.println("Running " + options);
+			LoadGenerator loadGenerator = new LoadGenerator(httpClient, objectMapper, baseUri, users, publicProjects, options);
+			loadGenerator.run();
+			loadGenerator.printReport(System.out);
+		}
+	}
+
+	private static ConfigurableApplicationContext startApplication(LoadTestOptions options) {
+		List<String> applicationArguments = new ArrayList<>();
+		applicationArguments.add("--server.port=0");
+		applicationArguments.add("--spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+		applicationArguments.add("--spring.jpa.show-sql=false");
+		applicationArguments.add("--logging.level.root=warn");
+		applicationArguments.add("--logging.level.org.hibernate.SQL=warn");
+		applicationArguments.add("--logging.level.org.hibernate.type.descriptor.sql=warn");
+		// Given last, so that they override the defaults above
+		applicationArguments.addAll(options.getApplicationArguments());
+
+		return new SpringApplicationBuilder(UserRegistrationBackendApplication.class)
+			   .logStartupInfo(false)
+			   .run(applicationArguments.toArray(new String[0]));
+	}
+
+	private static List<TestUser> seed(ConfigurableApplicationContext applicationContext, LoadTestOptions options,
+					   List<Integer> publicProjects) {
+		UserService userService = applicationContext.getBean(UserService.class);
+		ProjectService projectService = applicationContext.getBean(ProjectService.class);
+
+		List<User> usersToBeSaved = new ArrayList<>(options.getUsers());
+		List<String> passwords = new ArrayList<>(options.getUsers());
+		for (int i = 0; i < options.getUsers(); i++) {
+			passwords.add("Load test password " + i);
+			usersToBeSaved.add(new User("Load test user " + i, passwords.get(i)));
+		}
+		// Passwords are replaced by their hashes as the Users are saved
+		List<User> savedUsers = userService.saveUsers(usersToBeSaved);
+
+		List<Map<Integer, String>> seededProjects = new ArrayList<>(savedUsers.size());
+		for (int i = 0; i < savedUsers.size(); i++) {
+			seededProjects.add(new LinkedHashMap<>());
+		}
+
+		for (int start = 0; start < options.getProjects(); start += SEED_CHUNK_SIZE) {
+			List<Project> projectsToBeSaved = new ArrayList<>(SEED_CHUNK_SIZE);
+			for (int i = start; i < Math.min(start + SEED_CHUNK_SIZE, options.getProjects()); i++) {
+				Visibility visibility = (i % 2 == 0) ? Visibility.PUBLIC : Visibility.PRIVATE;
+				projectsToBeSaved.add(new Project("Load test project " + i, "Seeded by the load test", visibility,
+								  savedUsers.get(i % savedUsers.size())));
+			}
+
+			List<Project> savedProjects = projectService.saveProjects(projectsToBeSaved);
+			for (int i = 0; i < savedProjects.size(); i++) {
+				Project savedProject = savedProjects.get(i);
+				seededProjects.get((start + i) % savedUsers.size()).put(savedProject.getId(), savedProject.getName());
+				if (savedProject.getVisibility() == Visibility.PUBLIC) {
+					publicProjects.add(savedProject.getId());
+				}
+			}
+		}
+
+		List<TestUser> users = new ArrayList<>(savedUsers.size());
+		for (int i = 0; i < savedUsers.size(); i++) {
+			User savedUser = savedUsers.get(i);
+			users.add(new TestUser(savedUser.getId(), savedUser.getUsername(), passwords.get(i), seededProjects.get(i)));
+		}
+
+		return users;
+	}
+
+	private static String login(HttpClient httpClient, ObjectMapper objectMapper, URI baseUri, TestUser user)
+			throws IOException, InterruptedException {
+		String body = objectMapper.writeValueAsString(new AuthenticationRequest(user.getUsername(), user.getPassword()));
+		HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("userApi/v1/login"))
+						 .header("Content-Type", "application/json")
+						 .POST(HttpRequest.BodyPublishers.ofString(body))
+						 .build();
+		HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+		// Every User logs in from the same address, which the rate limit of unauthenticated requests applies to
+		while (response.statusCode() == 429) {
+			long retryAfterSeconds = response.headers().firstValueAsLong("Retry-After").orElse(1);
+			Thread.sleep(TimeUnit.SECONDS.toMillis(retryAfterSeconds));
+			response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+		}
+
+		if (response.statusCode() != 200) {
+			throw new IllegalStateException("Login of " + user.getUsername() + " failed with status " + response.statusCode());
+		}
+
+		return objectMapper.readTree(response.body()).path("jwt").asText();
+	}
+}
@@ -0,0 +1,153 @@
+package org.lawcubator.assignment.userRegistrationBackend.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.convert.DurationStyle;
+
+/**
+ * Options of a load test, given as {@code --name=value} command line arguments
+ * <ul>
+ * <li>{@code --users}: Number of Users logging in and sending requests, 50 by default</li>
+ * <li>{@code --projects}: Number of Projects seeded before the load test starts, 10000 by default</li>
+ * <li>{@code --rate}: Target number of requests per second, 200 by default</li>
+ * <li>{@code --warmup}: Duration of the warmup, whose requests are not reported, 10s by default</li>
+ * <li>{@code --duration}: Duration of the measurement, 60s by default</li>
+ * <li>{@code --max-in-flight}: Maximum number of requests waiting for a response, further arrivals are dropped
+ * and reported apart from the requests sent, 1000 by default</li>
+ * <li>{@code --mix}: Weight of every operation, e.g. {@code project=40,projects/all=20}</li>
+ * <li>{@code --async}: Whether the asynchronous endpoints under {@code projectApi/v1/async/} are called instead,
+ * false by default</li>
+ * <li>{@code --app.<property>=<value>}: Property passed to the application under test</li>
+ * </ul>
+ */
+public class LoadTestOptions {
+
+	private static final String DEFAULT_MIX = "project=40,projects/all=20,other-projects/all=5,project/new=15,project/modify=15,project/remove=5";
+	private static final String APPLICATION_PROPERTY_PREFIX = "app.";
+
+	private int users = 50;
+	private int projects = 10000;
+	private double rate = 200;
+	private Duration warmup = Duration.ofSeconds(10);
+	private Duration duration = Duration.ofSeconds(60);
+	private int maximumInFlight = 1000;
+	private Map<Operation, Integer> mix = parseMix(DEFAULT_MIX);
+	private boolean async = false;
+	private final List<String> applicationArguments = new ArrayList<>();
+
+	/**
+	 * Parses the options of a load test
+	 *
+	 * @param args Command line arguments
+	 * @return Options of the load test
+	 * @throws IllegalArgumentException if an argument was not a known option or its value was invalid
+	 */
+	public static LoadTestOptions parse(String... args) {
+		LoadTestOptions options = new LoadTestOptions();
+
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+
+			if (!arg.startsWith("--") || separator < 0) {
+				throw new IllegalArgumentException("Option " + arg + " is not of the form --name=value");
+			}
+
+			String name = arg.substring(2, separator);
+			String value = arg.substring(separator + 1);
+
+			if (name.startsWith(APPLICATION_PROPERTY_PREFIX)) {
+				options.applicationArguments.add("--" + name.substring(APPLICATION_PROPERTY_PREFIX.length()) + "=" + value);
+				continue;
+			}
+
+			switch (name) {
+				case "users" -> options.users = positive(name, Integer.parseInt(value));
+				case "projects" -> options.projects = positive(name, Integer.parseInt(value));
+				case "rate" -> options.rate = positive(name, Double.parseDouble(value));
+				case "warmup" -> options.warmup = DurationStyle.detectAndParse(value);
+				case "duration" -> options.duration = DurationStyle.detectAndParse(value);
+				case "max-in-flight" -> options.maximumInFlight = positive(name, Integer.parseInt(value));
+				case "mix" -> options.mix = parseMix(value);
+				case "async" -> options.async = Boolean.parseBoolean(value);
+				default -> throw new IllegalArgumentException("Option --" + name + " is unknown");
+			}
+		}
+
+		return options;
+	}
+
+	private static Map<Operation, Integer> parseMix(String value) {
+		Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+
+		for (String entry : value.split(",")) {
+			String[] weight = entry.trim().split("=");
+
+			if (weight.length != 2) {
+				throw new IllegalArgumentException("Mix entry " + entry + " is not of the form operation=weight");
+			}
+
+			mix.put(Operation.fromPath(weight[0].trim()), Integer.parseInt(weight[1].trim()));
+		}
+
+		if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+			throw new IllegalArgumentException("Mix must have a positive total weight");
+		}
+
+		return mix;
+	}
+
+	private static <T extends Number> T positive(String name, T value) {
+		if (value.doubleValue() <= 0) {
+			throw new IllegalArgumentException("Option --" + name + " must be positive");
+		}
+
+		return value;
+	}
+
+	public int getUsers() {
+		return users;
+	}
+
+	public int getProjects() {
+		return projects;
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	public Duration getWarmup() {
+		return warmup;
+	}
+
+	public Duration getDuration() {
+		return duration;
+	}
+
+	public int getMaximumInFlight() {
+		return maximumInFlight;
+	}
+
+	public Map<Operation, Integer> getMix() {
+		return mix;
+	}
+
+	public boolean isAsync() {
+		return async;
+	}
+	
+	public List<String> getApplicationArguments() {
+		return applicationArguments;
+	}
+
+	@Override
+	public String toString() {
+		return "LoadTestOptions [users=" + users + ", projects=" + projects + ", rate=" + rate + ", warmup=" + warmup
+				+ ", duration=" + duration + ", maximumInFlight=" + maximumInFlight + ", mix=" + mix
+				+ ", async=" + async + ", applicationArguments=" + applicationArguments + "]";
+	}
+}
@@ -0,0 +1,41 @@
+package org.lawcubator.assignment.userRegistrationBackend.loadtest;
+
+/**
+ * Represents a call to the {@code projectApi/v1/} endpoints the load test can make
+ */
+public enum Operation {
+
+	PROJECT("project"),
+	PROJECTS_ALL("projects/all"),
+	OTHER_PROJECTS_ALL("other-projects/all"),
+	PROJECT_NEW("project/new"),
+	PROJECT_MODIFY("project/modify"),
+	PROJECT_REMOVE("project/remove");
+
+	private final String path;
+
+	private Operation(String path) {
+		this.path = path;
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Finds the operation calling the given endpoint
+	 *
+	 * @param path Path of the endpoint relative to {@code projectApi/v1/}
+	 * @return Operation calling the endpoint
+	 * @throws IllegalArgumentException if no operation calls the endpoint
+	 */
+	public static Operation fromPath(String path) {
+		for (Operation operation : values()) {
+			if (operation.path.equals(path)) {
+				return operation;
+			}
+		}
+
+		throw new IllegalArgumentException("Operation " + path + " is unknown");
+	}
+}
@@ -0,0 +1,70 @@
+package org.lawcubator.assignment.userRegistrationBackend.loadtest;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Represents a User sending requests during a load test, along with the Projects it owns
+ * <p>
+ * Seeded Projects are only ever modified, while Projects created during the load test are the ones being deleted,
+ * so that reads of seeded Projects keep succeeding.
+ */
+class TestUser {
+
+	private final Integer id;
+	private final String username;
+	private final String password;
+	private final Map<Integer, String> seededProjects;
+	private final List<Integer> seededProjectIds;
+	private final Deque<Integer> createdProjects = new ConcurrentLinkedDeque<>();
+	private String token;
+
+	TestUser(Integer id, String username, String password, Map<Integer, String> seededProjects) {
+		this.id = id;
+		this.username = username;
+		this.password = password;
+		this.seededProjects = seededProjects;
+		this.seededProjectIds = new ArrayList<>(seededProjects.keySet());
+	}
+
+	Integer getId() {
+		return id;
+	}
+
+	String getUsername() {
+		return username;
+	}
+
+	String getPassword() {
+		return password;
+	}
+
+	/**
+	 * @return Names of the seeded Projects owned by the User, by their Id
+	 */
+	Map<Integer, String> getSeededProjects() {
+		return seededProjects;
+	}
+
+	List<Integer> getSeededProjectIds() {
+		return seededProjectIds;
+	}
+
+	/**
+	 * @return Ids of the Projects created by the User during the load test and not deleted yet
+	 */
+	Deque<Integer> getCreatedProjects() {
+		return createdProjects;
+	}
+
+	String getToken() {
+		return token;
+	}
+
+	void setToken(String token) {
+		this.token = token;
+	}
+}